@@ -10,11 +10,13 @@ import com.exprivia.dfda.duatiaconfigurationmanager.service.exceptions.InvalidRe
 import com.exprivia.dfda.duatiaconfigurationmanager.service.models.BulkConfiguration;
 import com.exprivia.dfda.duatiaconfigurationmanager.service.models.ResponseErrorMessage;
 import com.exprivia.dfda.duatiaconfigurationmanager.service.services.BulkConfigurationService;
+import com.exprivia.dfda.duatiaconfigurationmanager.service.services.ConfigurationVersionService;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.context.request.WebRequest;
 
 @Slf4j
 @RestController
@@ -25,8 +27,14 @@ public class BulkConfigurationController {
     @Autowired
     private BulkConfigurationService bulkConfigurationService;
 
+    @Autowired
+    private ConfigurationVersionService configurationVersionService;
+
     @GetMapping(SERVICE_PATH)
-    public BulkConfiguration getMethodName() {
+    public BulkConfiguration getMethodName(WebRequest request) {
+        if (request.checkNotModified(configurationVersionService.getConfigurationTag())) {
+            return null;
+        }
         return bulkConfigurationService.readConfiguration();
     }
 
@@ -14,7 +14,9 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.exprivia.dfda.duatiaconfigurationmanager.service.services.ConfigurationVersionService;
 import com.exprivia.dfda.duatiaconfigurationmanager.service.services.CredentialService;
 import com.exprivia.dfda.tia.model.Credential;
 
@@ -31,13 +33,22 @@ public class CredentialController {
     @Autowired
     private CredentialService credentialService;
 
+    @Autowired
+    private ConfigurationVersionService configurationVersionService;
+
 	@GetMapping(SERVICE_PATH)
-	public List<Credential> getCredentialList() {
+	public List<Credential> getCredentialList(WebRequest request) {
+		if (request.checkNotModified(configurationVersionService.getConfigurationTag())) {
+			return null;
+		}
 		return credentialService.getCredentialList();
 	}
 
     @GetMapping(SERVICE_PATH + "/{id}")
-	public ResponseEntity<Credential> getDocumentRepository(@PathVariable String id) {
+	public ResponseEntity<Credential> getDocumentRepository(@PathVariable String id, WebRequest request) {
+		if (request.checkNotModified(configurationVersionService.getEntityTag(CredentialService.ENTITY_NAME, id))) {
+			return null;
+		}
 		Credential credential = credentialService.getCredential(id);
 		return ResponseEntity.of(Optional.ofNullable(credential));
 	}
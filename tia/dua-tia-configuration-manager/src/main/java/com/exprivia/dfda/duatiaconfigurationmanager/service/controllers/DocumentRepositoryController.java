@@ -14,9 +14,11 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.exprivia.dfda.duatiaconfigurationmanager.service.exceptions.ItemInUseException;
 import com.exprivia.dfda.duatiaconfigurationmanager.service.models.ResponseErrorMessage;
+import com.exprivia.dfda.duatiaconfigurationmanager.service.services.ConfigurationVersionService;
 import com.exprivia.dfda.duatiaconfigurationmanager.service.services.DocumentRepositoryService;
 import com.exprivia.dfda.tia.model.DocumentRepository;
 
@@ -33,13 +35,22 @@ public class DocumentRepositoryController {
     @Autowired
     private DocumentRepositoryService docRepoService;
 
+    @Autowired
+    private ConfigurationVersionService configurationVersionService;
+
 	@GetMapping(SERVICE_PATH)
-	public List<DocumentRepository> getDocumentRepositoryList() {
+	public List<DocumentRepository> getDocumentRepositoryList(WebRequest request) {
+		if (request.checkNotModified(configurationVersionService.getConfigurationTag())) {
+			return null;
+		}
 		return docRepoService.getDocumentRepositoryList();
 	}
 
     @GetMapping(SERVICE_PATH + "/{id}")
-	public ResponseEntity<DocumentRepository> getDocumentRepository(@PathVariable String id) {
+	public ResponseEntity<DocumentRepository> getDocumentRepository(@PathVariable String id, WebRequest request) {
+		if (request.checkNotModified(configurationVersionService.getEntityTag(DocumentRepositoryService.ENTITY_NAME, id))) {
+			return null;
+		}
 		DocumentRepository docRepo = docRepoService.getDocumentRepository(id);
 		return ResponseEntity.of(Optional.ofNullable(docRepo));
 	}
@@ -14,9 +14,11 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.exprivia.dfda.duatiaconfigurationmanager.service.exceptions.ItemInUseException;
 import com.exprivia.dfda.duatiaconfigurationmanager.service.models.ResponseErrorMessage;
+import com.exprivia.dfda.duatiaconfigurationmanager.service.services.ConfigurationVersionService;
 import com.exprivia.dfda.duatiaconfigurationmanager.service.services.DocumentTypeService;
 import com.exprivia.dfda.tia.model.DocumentType;
 
@@ -33,13 +35,22 @@ public class DocumentTypeController {
     @Autowired
     private DocumentTypeService documentTypeService;
 
+    @Autowired
+    private ConfigurationVersionService configurationVersionService;
+
 	@GetMapping(SERVICE_PATH)
-	public List<DocumentType> getDocumentTypes() {
+	public List<DocumentType> getDocumentTypes(WebRequest request) {
+		if (request.checkNotModified(configurationVersionService.getConfigurationTag())) {
+			return null;
+		}
 		return documentTypeService.getDocumentTypes();
 	}
 
     @GetMapping(SERVICE_PATH + "/{id}")
-	public ResponseEntity<DocumentType> getDocumentType(@PathVariable String id) {
+	public ResponseEntity<DocumentType> getDocumentType(@PathVariable String id, WebRequest request) {
+		if (request.checkNotModified(configurationVersionService.getEntityTag(DocumentTypeService.ENTITY_NAME, id))) {
+			return null;
+		}
 		DocumentType documentType = documentTypeService.getDocumentType(id);
 		return ResponseEntity.of(Optional.ofNullable(documentType));
 	}
@@ -14,9 +14,11 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.exprivia.dfda.duatiaconfigurationmanager.service.exceptions.ItemInUseException;
 import com.exprivia.dfda.duatiaconfigurationmanager.service.models.ResponseErrorMessage;
+import com.exprivia.dfda.duatiaconfigurationmanager.service.services.ConfigurationVersionService;
 import com.exprivia.dfda.duatiaconfigurationmanager.service.services.InitiativeService;
 import com.exprivia.dfda.tia.model.Initiative;
 
@@ -33,13 +35,22 @@ public class InitiativeController {
     @Autowired
     private InitiativeService initiativeService;
 
+    @Autowired
+    private ConfigurationVersionService configurationVersionService;
+
 	@GetMapping(SERVICE_PATH)
-	public List<Initiative> getInitiatives() {
+	public List<Initiative> getInitiatives(WebRequest request) {
+		if (request.checkNotModified(configurationVersionService.getConfigurationTag())) {
+			return null;
+		}
 		return initiativeService.getInitiatives();
 	}
 
     @GetMapping(SERVICE_PATH + "/{id}")
-	public ResponseEntity<Initiative> getInitiative(@PathVariable String id) {
+	public ResponseEntity<Initiative> getInitiative(@PathVariable String id, WebRequest request) {
+		if (request.checkNotModified(configurationVersionService.getEntityTag(InitiativeService.ENTITY_NAME, id))) {
+			return null;
+		}
 		Initiative initiative = initiativeService.getInitiative(id);
 		return ResponseEntity.of(Optional.ofNullable(initiative));
 	}
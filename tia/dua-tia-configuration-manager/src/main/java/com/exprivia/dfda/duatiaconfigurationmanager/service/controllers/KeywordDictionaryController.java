@@ -14,9 +14,11 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.exprivia.dfda.duatiaconfigurationmanager.service.exceptions.ItemInUseException;
 import com.exprivia.dfda.duatiaconfigurationmanager.service.models.ResponseErrorMessage;
+import com.exprivia.dfda.duatiaconfigurationmanager.service.services.ConfigurationVersionService;
 import com.exprivia.dfda.duatiaconfigurationmanager.service.services.KeywordDictionaryService;
 import com.exprivia.dfda.tia.model.KeywordDictionary;
 
@@ -33,13 +35,22 @@ public class KeywordDictionaryController {
     @Autowired
     private KeywordDictionaryService kwdService;
 
+    @Autowired
+    private ConfigurationVersionService configurationVersionService;
+
 	@GetMapping(SERVICE_PATH)
-	public List<KeywordDictionary> getKeywordDictionaryList() {
+	public List<KeywordDictionary> getKeywordDictionaryList(WebRequest request) {
+		if (request.checkNotModified(configurationVersionService.getConfigurationTag())) {
+			return null;
+		}
 		return kwdService.getKeywordDictionaryList();
 	}
 
     @GetMapping(SERVICE_PATH + "/{id}")
-	public ResponseEntity<KeywordDictionary> getKeywordDictionary(@PathVariable String id) {
+	public ResponseEntity<KeywordDictionary> getKeywordDictionary(@PathVariable String id, WebRequest request) {
+		if (request.checkNotModified(configurationVersionService.getEntityTag(KeywordDictionaryService.ENTITY_NAME, id))) {
+			return null;
+		}
 		KeywordDictionary kwd = kwdService.getKeywordDictionary(id);
 		return ResponseEntity.of(Optional.ofNullable(kwd));
 	}
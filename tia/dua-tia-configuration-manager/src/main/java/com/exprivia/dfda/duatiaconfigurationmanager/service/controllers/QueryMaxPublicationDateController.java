@@ -14,7 +14,9 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.exprivia.dfda.duatiaconfigurationmanager.service.services.ConfigurationVersionService;
 import com.exprivia.dfda.duatiaconfigurationmanager.service.services.QueryMaxPublicationDateService;
 import com.exprivia.dfda.tia.model.QueryMaxPublicationDate;
 
@@ -31,6 +33,9 @@ public class QueryMaxPublicationDateController {
     @Autowired
     private QueryMaxPublicationDateService service;
 
+    @Autowired
+    private ConfigurationVersionService configurationVersionService;
+
 	@GetMapping(SERVICE_PATH)
 	public List<QueryMaxPublicationDate> getQueryMaxPublicationDateList() {
 		return service.getQueryMaxPublicationDateList();
@@ -39,8 +44,12 @@ public class QueryMaxPublicationDateController {
 
     @GetMapping(SERVICE_PATH + "/{id}")
 	public ResponseEntity<QueryMaxPublicationDate> getQueryMaxPublicationDate(
-		@PathVariable String id) {
+		@PathVariable String id,
+		WebRequest request) {
 		
+		if (request.checkNotModified(configurationVersionService.getEntityTag(QueryMaxPublicationDateService.ENTITY_NAME, id))) {
+			return null;
+		}
 		QueryMaxPublicationDate qmpd = service.getMaxQueryPublicationDate(id);
 		return ResponseEntity.of(Optional.ofNullable(qmpd));
 	}
@@ -49,11 +58,14 @@ public class QueryMaxPublicationDateController {
 	public ResponseEntity<QueryMaxPublicationDate> getQueryMaxPublicationDate(
 		@PathVariable String searchBindingId, 
 		@PathVariable String repositoryId,
-		@PathVariable String mission) {
+		@PathVariable String mission,
+		WebRequest request) {
 		
-		QueryMaxPublicationDate qmpd = service.getMaxQueryPublicationDate(
-			QueryMaxPublicationDate.generateId(searchBindingId, repositoryId, mission)
-		);
+		String id = QueryMaxPublicationDate.generateId(searchBindingId, repositoryId, mission);
+		if (request.checkNotModified(configurationVersionService.getEntityTag(QueryMaxPublicationDateService.ENTITY_NAME, id))) {
+			return null;
+		}
+		QueryMaxPublicationDate qmpd = service.getMaxQueryPublicationDate(id);
 		return ResponseEntity.of(Optional.ofNullable(qmpd));
 	}
 
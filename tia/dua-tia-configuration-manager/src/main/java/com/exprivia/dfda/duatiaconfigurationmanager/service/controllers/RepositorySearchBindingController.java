@@ -14,8 +14,10 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.exprivia.dfda.duatiaconfigurationmanager.service.exceptions.InvalidRepositorySearchBindingException;
+import com.exprivia.dfda.duatiaconfigurationmanager.service.services.ConfigurationVersionService;
 import com.exprivia.dfda.duatiaconfigurationmanager.service.services.RepositorySearchBindingService;
 import com.exprivia.dfda.tia.model.RepositorySearchBinding;
 
@@ -32,19 +34,31 @@ public class RepositorySearchBindingController {
 	@Autowired
 	private RepositorySearchBindingService repositorySearchBindingService;
 
+	@Autowired
+	private ConfigurationVersionService configurationVersionService;
+
 	@GetMapping(SERVICE_PATH)
-	public List<RepositorySearchBinding> getRepositorySearchBindings() {
+	public List<RepositorySearchBinding> getRepositorySearchBindings(WebRequest request) {
+		if (request.checkNotModified(configurationVersionService.getConfigurationTag())) {
+			return null;
+		}
 		return repositorySearchBindingService.getRepositorySearchBindings();
 	}
 
 	@GetMapping(SERVICE_PATH + "/{id}")
-	public ResponseEntity<RepositorySearchBinding> getRepositorySearchBinding(@PathVariable String id) {
+	public ResponseEntity<RepositorySearchBinding> getRepositorySearchBinding(@PathVariable String id, WebRequest request) {
+		if (request.checkNotModified(configurationVersionService.getEntityTag(RepositorySearchBindingService.ENTITY_NAME, id))) {
+			return null;
+		}
 		RepositorySearchBinding binding = repositorySearchBindingService.getRepositorySearchBinding(id);
 		return ResponseEntity.of(Optional.ofNullable(binding));
 	}
 
 	@GetMapping(SERVICE_PATH + "/{id}/acronym")
-	public ResponseEntity<String> getRepositorySearchBindingAcronym(@PathVariable String id) {
+	public ResponseEntity<String> getRepositorySearchBindingAcronym(@PathVariable String id, WebRequest request) {
+		if (request.checkNotModified(configurationVersionService.getConfigurationTag())) {
+			return null;
+		}
 		try {
 			return ResponseEntity.ok(
 				repositorySearchBindingService.getRepositorySearchBindingAcronym(id));
@@ -54,7 +68,10 @@ public class RepositorySearchBindingController {
 	}
 
 	@GetMapping(SERVICE_PATH + "/by-doc-repo/{docRepoId}")
-	public List<RepositorySearchBinding> getRepositorySearchBindingByDocRepo(@PathVariable String docRepoId) {
+	public List<RepositorySearchBinding> getRepositorySearchBindingByDocRepo(@PathVariable String docRepoId, WebRequest request) {
+		if (request.checkNotModified(configurationVersionService.getConfigurationTag())) {
+			return null;
+		}
 		return repositorySearchBindingService.getRepositorySearchBindingsByDocumentRepository(docRepoId);
 	}
 
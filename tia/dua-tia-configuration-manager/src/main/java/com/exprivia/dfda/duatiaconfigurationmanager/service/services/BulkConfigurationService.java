@@ -2,8 +2,10 @@ package com.exprivia.dfda.duatiaconfigurationmanager.service.services;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.keyvalue.repository.KeyValueRepository;
 import org.springframework.stereotype.Service;
 
 import com.exprivia.dfda.duatiaconfigurationmanager.service.exceptions.InvalidRepositorySearchBindingException;
@@ -13,7 +15,6 @@ import com.exprivia.dfda.duatiaconfigurationmanager.service.repositories.Documen
 import com.exprivia.dfda.duatiaconfigurationmanager.service.repositories.DocumentTypeRepository;
 import com.exprivia.dfda.duatiaconfigurationmanager.service.repositories.InitiativeRepository;
 import com.exprivia.dfda.duatiaconfigurationmanager.service.repositories.KeywordDictionaryRepository;
-import com.exprivia.dfda.duatiaconfigurationmanager.service.repositories.RepositorySearchBindingRepository;
 import com.exprivia.dfda.tia.model.DocumentRepository;
 import com.exprivia.dfda.tia.model.DocumentType;
 import com.exprivia.dfda.tia.model.Initiative;
@@ -23,7 +24,7 @@ import com.exprivia.dfda.tia.model.RepositorySearchBinding;
 @Service
 public class BulkConfigurationService {
     @Autowired
-    private RepositorySearchBindingRepository bindingRepository;
+    private ConfigurationVersionService configurationVersionService;
 
     @Autowired
     private InitiativeRepository initiativeRepository;
@@ -119,11 +120,24 @@ public class BulkConfigurationService {
     }
 
     public void dropConfiguration() {
-        bindingRepository.deleteAll();
-        initiativeRepository.deleteAll();
-        documentTypeRepository.deleteAll();
-        keywordDictionaryRepository.deleteAll();
-        documentRepositoryRepository.deleteAll();
+        bindingService.deleteRepositorySearchBindings();
+        deleteAll(initiativeRepository, Initiative::getId, InitiativeService.ENTITY_NAME);
+        deleteAll(documentTypeRepository, DocumentType::getId, DocumentTypeService.ENTITY_NAME);
+        deleteAll(keywordDictionaryRepository, KeywordDictionary::getId, KeywordDictionaryService.ENTITY_NAME);
+        deleteAll(documentRepositoryRepository, DocumentRepository::getId, DocumentRepositoryService.ENTITY_NAME);
+        configurationVersionService.publishChange();
+    }
+
+    /**
+     * delete all the entities of a kind, incrementing their versions so that
+     * the clients do not keep them as not modified
+     */
+    private <T> void deleteAll(KeyValueRepository<T, String> entityRepository, Function<T, String> idGetter, String entityName) {
+        List<T> entities = entityRepository.findAll();
+        entityRepository.deleteAll(entities);
+        for (T entity : entities) {
+            configurationVersionService.incrementEntityVersion(entityName, idGetter.apply(entity));
+        }
     }
 
 }
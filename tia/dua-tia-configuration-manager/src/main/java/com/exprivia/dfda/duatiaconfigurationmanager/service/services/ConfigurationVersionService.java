@@ -0,0 +1,72 @@
+package com.exprivia.dfda.duatiaconfigurationmanager.service.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * version of the configuration read by the scheduler and the harvesters,
+ * incremented and published at each change, so that they reload their
+ * configuration only when changed.
+ *
+ * Each entity also has its own version, incremented at each save and delete,
+ * used as ETag of the entity so that unchanged entities are not sent again.
+ *
+ * The tags are weak, since tomcat does not compress the responses with a
+ * strong ETag: the compressed body would not be the same bytes it tags.
+ */
+@Service
+@Slf4j
+public class ConfigurationVersionService {
+    public static final String CONFIGURATION_CHANGE_CHANNEL = "configuration-changes";
+    private static final String VERSION_KEY = "configuration-version";
+    private static final String ENTITY_VERSIONS_KEY = "configuration-entity-versions";
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    /**
+     * publish the change of an entity of the configuration, after saving or deleting it
+     */
+    public void publishChange(String entityName, String id) {
+        incrementEntityVersion(entityName, id);
+        publishChange();
+    }
+
+    /**
+     * increment the version of an entity after saving or deleting it; failures are not
+     * ignored, since the clients would keep the previous entity as not modified
+     */
+    public void incrementEntityVersion(String entityName, String id) {
+        redisTemplate.opsForHash().increment(ENTITY_VERSIONS_KEY, entityName + ":" + id, 1);
+    }
+
+    /**
+     * @return the weak ETag of an entity, read before the entity itself
+     */
+    public String getEntityTag(String entityName, String id) {
+        Object version = redisTemplate.opsForHash().get(ENTITY_VERSIONS_KEY, entityName + ":" + id);
+        return "W/\"" + entityName + "-" + (version != null ? version : "0") + "\"";
+    }
+
+    /**
+     * @return the weak ETag of the responses depending on several entities, read before the entities
+     */
+    public String getConfigurationTag() {
+        String version = redisTemplate.opsForValue().get(VERSION_KEY);
+        return "W/\"configuration-" + (version != null ? version : "0") + "\"";
+    }
+
+    public void publishChange() {
+        try {
+            Long version = redisTemplate.opsForValue().increment(VERSION_KEY);
+            redisTemplate.convertAndSend(CONFIGURATION_CHANGE_CHANNEL, String.valueOf(version));
+            log.info("configuration version {} published", version);
+        } catch (RuntimeException e) {
+            // the consumers reload their configuration anyway when it gets too old
+            log.error("cannot publish configuration change", e);
+        }
+    }
+}
@@ -11,6 +11,11 @@ import com.exprivia.dfda.tia.model.Credential;
 
 @Service
 public class CredentialService {
+    public static final String ENTITY_NAME = "credential";
+
+    @Autowired
+    private ConfigurationVersionService configurationVersionService;
+
     @Autowired
     private CredentialRepository credentialRepository;
 
@@ -22,10 +27,12 @@ public class CredentialService {
         Credential item = credentialRepository.findById(id).orElseThrow();
 
         credentialRepository.delete(item);
+        configurationVersionService.publishChange(ENTITY_NAME, item.getId());
     }
 
     public String saveCredential(Credential credential) {
         credentialRepository.save(credential);
+        configurationVersionService.publishChange(ENTITY_NAME, credential.getId());
 		return credential.getId();
     }
 
@@ -13,6 +13,11 @@ import com.exprivia.dfda.tia.model.RepositorySearchBinding;
 
 @Service
 public class DocumentRepositoryService {
+    public static final String ENTITY_NAME = "document-repository";
+
+    @Autowired
+    private ConfigurationVersionService configurationVersionService;
+
     @Autowired
     private DocumentRepositoryRepository documentRepositoryRepository;
 
@@ -35,10 +40,12 @@ public class DocumentRepositoryService {
         }
 
         documentRepositoryRepository.delete(item);
+        configurationVersionService.publishChange(ENTITY_NAME, item.getId());
     }
 
     public String saveDocumentRepository(DocumentRepository documentRepository) {
         documentRepositoryRepository.save(documentRepository);
+        configurationVersionService.publishChange(ENTITY_NAME, documentRepository.getId());
 		return documentRepository.getId();
     }
 
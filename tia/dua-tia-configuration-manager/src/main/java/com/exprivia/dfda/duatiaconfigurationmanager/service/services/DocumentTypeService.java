@@ -14,6 +14,11 @@ import com.exprivia.dfda.tia.model.RepositorySearchBinding;
 
 @Service
 public class DocumentTypeService {
+    public static final String ENTITY_NAME = "document-type";
+
+    @Autowired
+    private ConfigurationVersionService configurationVersionService;
+
     @Autowired
     private DocumentTypeRepository documentTypeRepository;
 
@@ -34,10 +39,12 @@ public class DocumentTypeService {
         }
 
         documentTypeRepository.delete(item);
+        configurationVersionService.publishChange(ENTITY_NAME, item.getId());
     }
 
     public String saveDocumentType(DocumentType documentType) {
         documentTypeRepository.save(documentType);
+        configurationVersionService.publishChange(ENTITY_NAME, documentType.getId());
         return documentType.getId();
     }
 
@@ -13,6 +13,11 @@ import com.exprivia.dfda.tia.model.RepositorySearchBinding;
 
 @Service
 public class InitiativeService {
+    public static final String ENTITY_NAME = "initiative";
+
+    @Autowired
+    private ConfigurationVersionService configurationVersionService;
+
     @Autowired
     private InitiativeRepository initiativeRepository;
 
@@ -33,10 +38,12 @@ public class InitiativeService {
         }
 
         initiativeRepository.delete(item);
+        configurationVersionService.publishChange(ENTITY_NAME, item.getId());
     }
 
     public String saveInitiative(Initiative initiative) {
         initiativeRepository.save(initiative);
+        configurationVersionService.publishChange(ENTITY_NAME, initiative.getId());
         return initiative.getId();
     }
 
@@ -13,6 +13,10 @@ import com.exprivia.dfda.tia.model.RepositorySearchBinding;
 
 @Service
 public class KeywordDictionaryService {
+    public static final String ENTITY_NAME = "keyword-dictionary";
+
+    @Autowired
+    private ConfigurationVersionService configurationVersionService;
 
     @Autowired
     private KeywordDictionaryRepository kwRepo;
@@ -34,10 +38,12 @@ public class KeywordDictionaryService {
         }
 
         kwRepo.delete(item);
+        configurationVersionService.publishChange(ENTITY_NAME, item.getId());
     }
 
     public String saveKeywordDictionary(KeywordDictionary keywordDictionary) {
         kwRepo.save(keywordDictionary);
+        configurationVersionService.publishChange(ENTITY_NAME, keywordDictionary.getId());
 		return keywordDictionary.getId();
     }
 
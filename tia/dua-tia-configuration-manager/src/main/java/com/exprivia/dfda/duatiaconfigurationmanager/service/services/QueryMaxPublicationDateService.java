@@ -13,6 +13,11 @@ import com.exprivia.dfda.tia.model.QueryMaxPublicationDate;
 
 @Service
 public class QueryMaxPublicationDateService {
+    public static final String ENTITY_NAME = "query-max-publication-date";
+
+    @Autowired
+    private ConfigurationVersionService configurationVersionService;
+
     @Autowired
     private QueryMaxPublicationDateRepository queryMaxPublicationDateRepository;
 
@@ -37,6 +42,7 @@ public class QueryMaxPublicationDateService {
         }
 
         QueryMaxPublicationDate qmpd = queryMaxPublicationDateRepository.save(queryMaxPublicationDate);
+        configurationVersionService.incrementEntityVersion(ENTITY_NAME, qmpd.getId());
         return qmpd.getId();
     }
 
@@ -44,6 +50,7 @@ public class QueryMaxPublicationDateService {
         QueryMaxPublicationDate qmpd = queryMaxPublicationDateRepository.findById(id).orElseThrow();
 
         queryMaxPublicationDateRepository.delete(qmpd);
+        configurationVersionService.incrementEntityVersion(ENTITY_NAME, id);
     }
 
     public List<QueryMaxPublicationDate> getQueryMaxPublicationDateList() {
@@ -2,8 +2,10 @@ package com.exprivia.dfda.duatiaconfigurationmanager.service.services;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
 import com.exprivia.dfda.duatiaconfigurationmanager.service.exceptions.InvalidRepositorySearchBindingException;
@@ -17,8 +19,25 @@ import com.exprivia.dfda.tia.model.Initiative;
 import com.exprivia.dfda.tia.model.KeywordDictionary;
 import com.exprivia.dfda.tia.model.RepositorySearchBinding;
 
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * the bindings of each document repository are indexed in a redis set
+ * of binding ids per document repository, updated at each save and delete
+ */
 @Service
+@Slf4j
 public class RepositorySearchBindingService {
+    public static final String ENTITY_NAME = "repository-search-binding";
+    private static final String DOCUMENT_REPOSITORY_INDEX_KEY_PREFIX = "repository-search-bindings-by-doc-repo:";
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private ConfigurationVersionService configurationVersionService;
+
     @Autowired
     private RepositorySearchBindingRepository repository;
 
@@ -38,9 +57,30 @@ public class RepositorySearchBindingService {
         return repository.findAll();
     }
 
+    /**
+     * add the bindings saved before the index was introduced; the index
+     * entries are only added, so that this can run at every start
+     */
+    @PostConstruct
+    public void initializeDocumentRepositoryIndex() {
+        try {
+            long count = 0;
+            for (RepositorySearchBinding binding : repository.findAll()) {
+                updateDocumentRepositoryIndex(null, binding);
+                count++;
+            }
+            log.info("document repository index of {} repository search bindings updated", count);
+        } catch (RuntimeException e) {
+            log.error("cannot update document repository index of repository search bindings", e);
+        }
+    }
+
     public List<RepositorySearchBinding> getRepositorySearchBindingsByDocumentRepository(String documentRepositoryId) {
+        Set<String> bindingIds = redisTemplate.opsForSet().members(DOCUMENT_REPOSITORY_INDEX_KEY_PREFIX + documentRepositoryId);
+
         List<RepositorySearchBinding> retList = new ArrayList<>();
-        for (RepositorySearchBinding binding : repository.findAll()) {
+        for (RepositorySearchBinding binding : repository.findAllById(bindingIds)) {
+            // skip the index entries left by a binding update interrupted halfway
             if (binding.getDocumentRepositoryIds().contains(documentRepositoryId)) {
                 retList.add(binding);
             }
@@ -51,7 +91,10 @@ public class RepositorySearchBindingService {
     public String saveRepositorySearchBinding(RepositorySearchBinding binding) throws InvalidRepositorySearchBindingException {
         checkRepositorySearchBinding(binding);
 
+        RepositorySearchBinding previous = binding.getId() != null ? repository.findById(binding.getId()).orElse(null) : null;
         repository.save(binding);
+        updateDocumentRepositoryIndex(previous, binding);
+        configurationVersionService.publishChange(ENTITY_NAME, binding.getId());
         return binding.getId();
     }
 
@@ -59,6 +102,23 @@ public class RepositorySearchBindingService {
         RepositorySearchBinding item = repository.findById(id).orElseThrow();
 
         repository.delete(item);
+        updateDocumentRepositoryIndex(item, null);
+        configurationVersionService.publishChange(ENTITY_NAME, item.getId());
+    }
+
+    /**
+     * delete all the bindings with their index, incrementing their versions
+     * but without publishing the change
+     */
+    public void deleteRepositorySearchBindings() {
+        List<RepositorySearchBinding> bindings = repository.findAll();
+        for (RepositorySearchBinding binding : bindings) {
+            updateDocumentRepositoryIndex(binding, null);
+        }
+        repository.deleteAll(bindings);
+        for (RepositorySearchBinding binding : bindings) {
+            configurationVersionService.incrementEntityVersion(ENTITY_NAME, binding.getId());
+        }
     }
 
     public RepositorySearchBinding getRepositorySearchBinding(String id) {
@@ -85,6 +145,25 @@ public class RepositorySearchBindingService {
         return sb.toString();
     }
 
+    /**
+     * @param previous the binding before the change, null if created
+     * @param binding the binding after the change, null if deleted
+     */
+    private void updateDocumentRepositoryIndex(RepositorySearchBinding previous, RepositorySearchBinding binding) {
+        if (previous != null) {
+            for (String documentRepositoryId : previous.getDocumentRepositoryIds()) {
+                if (binding == null || !binding.getDocumentRepositoryIds().contains(documentRepositoryId)) {
+                    redisTemplate.opsForSet().remove(DOCUMENT_REPOSITORY_INDEX_KEY_PREFIX + documentRepositoryId, previous.getId());
+                }
+            }
+        }
+        if (binding != null) {
+            for (String documentRepositoryId : binding.getDocumentRepositoryIds()) {
+                redisTemplate.opsForSet().add(DOCUMENT_REPOSITORY_INDEX_KEY_PREFIX + documentRepositoryId, binding.getId());
+            }
+        }
+    }
+
     private void checkRepositorySearchBinding(RepositorySearchBinding binding) throws InvalidRepositorySearchBindingException {
         if (initiativeRepository.findById(binding.getInitiativeId()).isEmpty()) {
             throw new InvalidRepositorySearchBindingException("Initiative not found: " + binding.getInitiativeId());
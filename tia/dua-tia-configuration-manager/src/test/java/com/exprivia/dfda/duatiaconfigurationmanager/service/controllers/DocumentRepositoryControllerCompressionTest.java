@@ -0,0 +1,90 @@
+package com.exprivia.dfda.duatiaconfigurationmanager.service.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.exprivia.dfda.duatiaconfigurationmanager.service.repositories.DocumentRepositoryRepository;
+import com.exprivia.dfda.tia.model.DocumentRepository;
+
+/**
+ * the configuration lists shall be both compressed and tagged by the embedded server
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class DocumentRepositoryControllerCompressionTest {
+	@LocalServerPort
+	private int port;
+
+	@MockitoBean
+	private StringRedisTemplate redisTemplate;
+
+	@MockitoBean
+	private DocumentRepositoryRepository documentRepositoryRepository;
+
+	@MockitoBean
+	private ValueOperations<String, String> valueOperations;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@BeforeEach
+	void setUp() {
+		when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+		when(valueOperations.get(anyString())).thenReturn("42");
+
+		List<DocumentRepository> repositories = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			repositories.add(new DocumentRepository("repo-" + i, "repository " + i, "https://repository-" + i + ".example.org/api",
+				"SIMPLE", null, 86400, true, 100, 1, null));
+		}
+		when(documentRepositoryRepository.findAll()).thenReturn(repositories);
+	}
+
+	private HttpResponse<InputStream> get(String... headers) throws IOException, InterruptedException {
+		HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/tia/api/v1/document-repositories"));
+		for (int h = 0; h < headers.length; h += 2) {
+			builder.header(headers[h], headers[h + 1]);
+		}
+		return client.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+	}
+
+	@Test
+	void listIsCompressedWithWeakTag() throws IOException, InterruptedException {
+		HttpResponse<InputStream> response = get("Accept-Encoding", "gzip");
+
+		assertEquals(200, response.statusCode());
+		assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+		assertEquals("W/\"configuration-42\"", response.headers().firstValue("ETag").orElse(null));
+
+		try (InputStream body = new GZIPInputStream(response.body())) {
+			assertTrue(new String(body.readAllBytes(), StandardCharsets.UTF_8).contains("repository-49.example.org"));
+		}
+	}
+
+	@Test
+	void unchangedListIsNotSentAgain() throws IOException, InterruptedException {
+		HttpResponse<InputStream> response = get("Accept-Encoding", "gzip", "If-None-Match", "W/\"configuration-42\"");
+
+		assertEquals(304, response.statusCode());
+		assertEquals(0, response.body().readAllBytes().length);
+	}
+}
@@ -0,0 +1,81 @@
+package com.exprivia.dfda.duatiaconfigurationmanager.service.services;
+
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.exprivia.dfda.duatiaconfigurationmanager.service.repositories.DocumentRepositoryRepository;
+import com.exprivia.dfda.duatiaconfigurationmanager.service.repositories.DocumentTypeRepository;
+import com.exprivia.dfda.duatiaconfigurationmanager.service.repositories.InitiativeRepository;
+import com.exprivia.dfda.duatiaconfigurationmanager.service.repositories.KeywordDictionaryRepository;
+import com.exprivia.dfda.tia.model.DocumentRepository;
+import com.exprivia.dfda.tia.model.DocumentType;
+import com.exprivia.dfda.tia.model.Initiative;
+import com.exprivia.dfda.tia.model.KeywordDictionary;
+
+@ExtendWith(MockitoExtension.class)
+class BulkConfigurationServiceTest {
+	@Mock
+	private ConfigurationVersionService configurationVersionService;
+
+	@Mock
+	private InitiativeRepository initiativeRepository;
+
+	@Mock
+	private DocumentTypeRepository documentTypeRepository;
+
+	@Mock
+	private KeywordDictionaryRepository keywordDictionaryRepository;
+
+	@Mock
+	private DocumentRepositoryRepository documentRepositoryRepository;
+
+	@Mock
+	private RepositorySearchBindingService bindingService;
+
+	@InjectMocks
+	private BulkConfigurationService bulkConfigurationService;
+
+	@Test
+	void droppedEntitiesGetNewVersions() {
+		Initiative initiative = new Initiative();
+		initiative.setId("initiative-1");
+		DocumentType documentType = new DocumentType();
+		documentType.setId("document-type-1");
+		KeywordDictionary keywordDictionary = new KeywordDictionary();
+		keywordDictionary.setId("keyword-dictionary-1");
+		DocumentRepository documentRepository = new DocumentRepository();
+		documentRepository.setId("document-repository-1");
+
+		when(initiativeRepository.findAll()).thenReturn(List.of(initiative));
+		when(documentTypeRepository.findAll()).thenReturn(List.of(documentType));
+		when(keywordDictionaryRepository.findAll()).thenReturn(List.of(keywordDictionary));
+		when(documentRepositoryRepository.findAll()).thenReturn(List.of(documentRepository));
+
+		bulkConfigurationService.dropConfiguration();
+
+		verify(bindingService).deleteRepositorySearchBindings();
+
+		// the versions are incremented after the deletion, not to tag the deleted entities
+		InOrder initiativeOrder = inOrder(initiativeRepository, configurationVersionService);
+		initiativeOrder.verify(initiativeRepository).deleteAll(List.of(initiative));
+		initiativeOrder.verify(configurationVersionService).incrementEntityVersion(InitiativeService.ENTITY_NAME, "initiative-1");
+
+		verify(documentTypeRepository).deleteAll(List.of(documentType));
+		verify(configurationVersionService).incrementEntityVersion(DocumentTypeService.ENTITY_NAME, "document-type-1");
+		verify(keywordDictionaryRepository).deleteAll(List.of(keywordDictionary));
+		verify(configurationVersionService).incrementEntityVersion(KeywordDictionaryService.ENTITY_NAME, "keyword-dictionary-1");
+		verify(documentRepositoryRepository).deleteAll(List.of(documentRepository));
+		verify(configurationVersionService).incrementEntityVersion(DocumentRepositoryService.ENTITY_NAME, "document-repository-1");
+		verify(configurationVersionService).publishChange();
+	}
+}
@@ -0,0 +1,183 @@
+package com.exprivia.dfda.duatiaconfigurationmanager.service.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SetOperations;
+
+import com.exprivia.dfda.duatiaconfigurationmanager.service.exceptions.InvalidRepositorySearchBindingException;
+import com.exprivia.dfda.duatiaconfigurationmanager.service.repositories.DocumentRepositoryRepository;
+import com.exprivia.dfda.duatiaconfigurationmanager.service.repositories.DocumentTypeRepository;
+import com.exprivia.dfda.duatiaconfigurationmanager.service.repositories.InitiativeRepository;
+import com.exprivia.dfda.duatiaconfigurationmanager.service.repositories.KeywordDictionaryRepository;
+import com.exprivia.dfda.duatiaconfigurationmanager.service.repositories.RepositorySearchBindingRepository;
+import com.exprivia.dfda.tia.model.DocumentRepository;
+import com.exprivia.dfda.tia.model.DocumentType;
+import com.exprivia.dfda.tia.model.Initiative;
+import com.exprivia.dfda.tia.model.KeywordDictionary;
+import com.exprivia.dfda.tia.model.RepositorySearchBinding;
+
+@ExtendWith(MockitoExtension.class)
+class RepositorySearchBindingServiceTest {
+	private static final String INDEX = "repository-search-bindings-by-doc-repo:";
+
+	@Mock
+	private RedisTemplate<String, String> redisTemplate;
+
+	@Mock
+	private SetOperations<String, String> setOperations;
+
+	@Mock
+	private ConfigurationVersionService configurationVersionService;
+
+	@Mock
+	private RepositorySearchBindingRepository repository;
+
+	@Mock
+	private InitiativeRepository initiativeRepository;
+
+	@Mock
+	private DocumentTypeRepository documentTypeRepository;
+
+	@Mock
+	private KeywordDictionaryRepository keywordDictionaryRepository;
+
+	@Mock
+	private DocumentRepositoryRepository documentRepositoryRepository;
+
+	@InjectMocks
+	private RepositorySearchBindingService bindingService;
+
+	@BeforeEach
+	void setUp() {
+		lenient().when(redisTemplate.opsForSet()).thenReturn(setOperations);
+	}
+
+	private static RepositorySearchBinding binding(String id, String... documentRepositoryIds) {
+		RepositorySearchBinding binding = new RepositorySearchBinding("initiative", "document-type", "keyword-dictionary", List.of(documentRepositoryIds));
+		binding.setId(id);
+		return binding;
+	}
+
+	private void referencedEntitiesExist() {
+		when(initiativeRepository.findById("initiative")).thenReturn(Optional.of(new Initiative()));
+		when(documentTypeRepository.findById("document-type")).thenReturn(Optional.of(new DocumentType()));
+		when(keywordDictionaryRepository.findById("keyword-dictionary")).thenReturn(Optional.of(new KeywordDictionary()));
+		lenient().when(documentRepositoryRepository.findById(anyString())).thenReturn(Optional.of(new DocumentRepository()));
+	}
+
+	@Test
+	void newBindingIsIndexed() throws Exception {
+		referencedEntitiesExist();
+		when(repository.findById("binding")).thenReturn(Optional.empty());
+
+		bindingService.saveRepositorySearchBinding(binding("binding", "repo-a", "repo-b"));
+
+		verify(setOperations).add(INDEX + "repo-a", "binding");
+		verify(setOperations).add(INDEX + "repo-b", "binding");
+		verifyNoMoreInteractions(setOperations);
+		verify(configurationVersionService).publishChange(RepositorySearchBindingService.ENTITY_NAME, "binding");
+	}
+
+	@Test
+	void updatedBindingLeavesTheRemovedRepositories() throws Exception {
+		referencedEntitiesExist();
+		when(repository.findById("binding")).thenReturn(Optional.of(binding("binding", "repo-a", "repo-b")));
+
+		bindingService.saveRepositorySearchBinding(binding("binding", "repo-b", "repo-c"));
+
+		verify(setOperations).remove(INDEX + "repo-a", "binding");
+		verify(setOperations).add(INDEX + "repo-b", "binding");
+		verify(setOperations).add(INDEX + "repo-c", "binding");
+		verifyNoMoreInteractions(setOperations);
+	}
+
+	@Test
+	void invalidBindingIsNotIndexed() {
+		when(initiativeRepository.findById("initiative")).thenReturn(Optional.empty());
+
+		assertThrows(InvalidRepositorySearchBindingException.class,
+			() -> bindingService.saveRepositorySearchBinding(binding("binding", "repo-a")));
+
+		verify(repository, never()).save(any());
+		verifyNoMoreInteractions(setOperations);
+	}
+
+	@Test
+	void deletedBindingIsRemovedFromTheIndex() {
+		when(repository.findById("binding")).thenReturn(Optional.of(binding("binding", "repo-a", "repo-b")));
+
+		bindingService.deleteRepositorySearchBinding("binding");
+
+		verify(setOperations).remove(INDEX + "repo-a", "binding");
+		verify(setOperations).remove(INDEX + "repo-b", "binding");
+		verifyNoMoreInteractions(setOperations);
+		verify(configurationVersionService).publishChange(RepositorySearchBindingService.ENTITY_NAME, "binding");
+	}
+
+	@Test
+	void allBindingsDeletedWithTheirIndex() {
+		List<RepositorySearchBinding> bindings = List.of(binding("first", "repo-a"), binding("second", "repo-a", "repo-b"));
+		when(repository.findAll()).thenReturn(bindings);
+
+		bindingService.deleteRepositorySearchBindings();
+
+		verify(setOperations).remove(INDEX + "repo-a", "first");
+		verify(setOperations).remove(INDEX + "repo-a", "second");
+		verify(setOperations).remove(INDEX + "repo-b", "second");
+		verifyNoMoreInteractions(setOperations);
+		verify(repository).deleteAll(bindings);
+		verify(configurationVersionService).incrementEntityVersion(RepositorySearchBindingService.ENTITY_NAME, "first");
+		verify(configurationVersionService).incrementEntityVersion(RepositorySearchBindingService.ENTITY_NAME, "second");
+		verify(configurationVersionService, never()).publishChange();
+	}
+
+	@Test
+	void staleIndexEntriesAreSkipped() {
+		RepositorySearchBinding current = binding("current", "repo-a");
+		RepositorySearchBinding moved = binding("moved", "repo-b");
+		when(setOperations.members(INDEX + "repo-a")).thenReturn(Set.of("current", "moved"));
+		when(repository.findAllById(any())).thenReturn(List.of(current, moved));
+
+		assertEquals(List.of(current), bindingService.getRepositorySearchBindingsByDocumentRepository("repo-a"));
+	}
+
+	@Test
+	void existingBindingsIndexedAtStartup() {
+		when(repository.findAll()).thenReturn(List.of(binding("first", "repo-a"), binding("second", "repo-b")));
+
+		bindingService.initializeDocumentRepositoryIndex();
+
+		verify(setOperations).add(INDEX + "repo-a", "first");
+		verify(setOperations).add(INDEX + "repo-b", "second");
+		verifyNoMoreInteractions(setOperations);
+	}
+
+	@Test
+	void startupIndexingFailureIsNotFatal() {
+		when(repository.findAll()).thenThrow(new RedisConnectionFailureException("connection refused"));
+
+		bindingService.initializeDocumentRepositoryIndex();
+
+		verifyNoMoreInteractions(setOperations);
+	}
+}
@@ -1,5 +1,10 @@
 package com.exprivia.dfda.duatiadocumentretriever;
 
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -10,15 +15,21 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.data.redis.repository.configuration.EnableRedisRepositories;
 
+import com.exprivia.dfda.duatiadocumentretriever.business.DocumentQueueReaper;
 import com.exprivia.dfda.duatiadocumentretriever.business.DocumentRetriever;
 import com.exprivia.dfda.duatiadocumentretriever.business.DocumentRetrieverDriverTest;
+import com.exprivia.dfda.duatiadocumentretriever.business.DocumentRetrieverWorkerPool;
+import com.exprivia.dfda.duatiadocumentretriever.business.DocumentStatusQuery;
 import com.exprivia.dfda.duatiadocumentretriever.business.DuaTiaDocumentRetrieverDocStatusHelper;
+import com.exprivia.dfda.duatiadocumentretriever.business.DuaTiaDocumentRetrieverDocStatusHelper.OutputFormat;
 import com.exprivia.dfda.duatiadocumentretriever.business.docretriever.download.DocumentDownloadAction;
 import com.exprivia.dfda.duatiadocumentretriever.business.docretriever.download.DocumentDownloadResult;
 import com.exprivia.dfda.duatiadocumentretriever.business.docretriever.exceptions.CannotContactDocumentRepositoryException;
 import com.exprivia.dfda.duatiadocumentretriever.business.docretriever.exceptions.CannotDownloadDocumentException;
 import com.exprivia.dfda.duatiadocumentretriever.business.docretriever.exceptions.CannotWriteDocumentException;
 import com.exprivia.dfda.tia.model.DocumentCommonAttributes;
+import com.exprivia.dfda.tia.model.DocumentStatus;
+import com.exprivia.dfda.tia.service.DocumentQueueMessage;
 import com.exprivia.dfda.tia.service.DocumentQueueService;
 import com.exprivia.dfda.tia.service.exception.DocumentQueueException;
 
@@ -44,10 +55,19 @@ public class DuaTiaDocumentRetrieverApplication implements CommandLineRunner {
 	@Autowired
 	private DocumentRetrieverDriverTest documentRetrieverDriverTest;
 
+	@Autowired
+	private DocumentRetrieverWorkerPool workerPool;
+
+	@Autowired
+	private DocumentQueueReaper queueReaper;
+
 	private DocumentRetrieverRunMode runMode = DocumentRetrieverRunMode.NORMAL;
 
 	DocumentDownloadAction testDownloadAction = null;
 	QueryFilter queryFilter = QueryFilter.ALL;
+	DocumentStatusQuery statusQuery = new DocumentStatusQuery();
+	OutputFormat outputFormat = OutputFormat.TEXT;
+	String outputFile = null;
 	UpdateTarget updateTarget = UpdateTarget.RESET_RETRY_COUNTER;
 
 	public static void main(String[] args) {
@@ -84,7 +104,8 @@ public class DuaTiaDocumentRetrieverApplication implements CommandLineRunner {
 		List<String> urlList = new ArrayList<>();
 		String credentials = null;
 		String path = null;
-		String group = "test-group";
+		String group = null;
+		String mission = null;
 		
 		for (int a = 0; a < args.length; a++) {
 			if (args[a].equals("-t")) runMode = DocumentRetrieverRunMode.TEST;
@@ -99,10 +120,20 @@ public class DuaTiaDocumentRetrieverApplication implements CommandLineRunner {
 			else if (args[a].equals("-f") && a + 1 < args.length) queryFilter = QueryFilter.valueOf(args[a + 1]);
 			else if (args[a].equals("-T") && a + 1 < args.length) updateTarget = UpdateTarget.valueOf(args[a + 1]);
 			else if (args[a].equals("-g") && a + 1 < args.length) group = args[a + 1];
+			else if (args[a].equals("-m") && a + 1 < args.length) mission = args[a + 1];
+			else if (args[a].equals("-o") && a + 1 < args.length) outputFile = args[a + 1];
+			else if (args[a].equals("-F") && a + 1 < args.length) outputFormat = OutputFormat.valueOf(args[a + 1]);
+			else if (args[a].equals("-from") && a + 1 < args.length) statusQuery.setFrom(parseTimestamp(args[a + 1]));
+			else if (args[a].equals("-to") && a + 1 < args.length) statusQuery.setTo(parseTimestamp(args[a + 1]));
+		}
+		if (runMode == DocumentRetrieverRunMode.QUERY) {
+			statusQuery.setGroup(group);
+			statusQuery.setRepository(driver);
+			statusQuery.setMission(mission);
 		}
 		if (runMode == DocumentRetrieverRunMode.TEST) {
 			testDownloadAction = new DocumentDownloadAction(
-				group,
+				group != null ? group : "test-group",
 				documentId, 
 				driver, 
 				doiList,
@@ -114,14 +145,25 @@ public class DuaTiaDocumentRetrieverApplication implements CommandLineRunner {
 	}
 
 	private void daemonMode() throws InterruptedException {
-		while (true) {
+		workerPool.start(this::handleMessage);
+		queueReaper.start();
+
+		while (workerPool.isRunning()) {
 			try {
-				DocumentCommonAttributes doc = documentQueueService.popDocumentEvent();
+				// pop a new event only when a worker can take it
+				if (!workerPool.awaitCapacity(10000)) {
+					continue;
+				}
 
-				if (doc == null) {
-					Thread.sleep(10000);
+				DocumentQueueMessage message = documentQueueService.popDocumentEvent();
+
+				if (message == null) {
+					// a blocking pop has already waited for new events
+					if (!documentQueueService.isBlockingPop()) {
+						Thread.sleep(10000);
+					}
 				} else {
-					this.handleMessage(doc);
+					workerPool.submit(message);
 				}
 
 			} catch (DocumentQueueException e) {
@@ -177,21 +219,32 @@ public class DuaTiaDocumentRetrieverApplication implements CommandLineRunner {
         }
 	}
 
-	private void queryMode() {
+	/**
+	 * accepts a date (yyyy-mm-dd, utc midnight) or an iso instant
+	 */
+	private static Instant parseTimestamp(String value) {
+		try {
+			return Instant.parse(value);
+		} catch (DateTimeParseException e) {
+			return LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant();
+		}
+	}
+
+	private void queryMode() throws IOException {
 		switch (queryFilter) {
 			case COMPLETED:
-				docStatusHelper.query(true, false, false);
+				statusQuery.getStates().add(DocumentStatus.State.COMPLETED);
 				break;
 			case RETRYING:
-				docStatusHelper.query(false, true, false);
+				statusQuery.getStates().add(DocumentStatus.State.RETRYING);
 				break;
 			case FAILED:
-				docStatusHelper.query(false, false, true);
+				statusQuery.getStates().add(DocumentStatus.State.FAILED);
 				break;
 			case ALL:
-				docStatusHelper.query(true, true, true);
 				break;
 		}
+		docStatusHelper.query(statusQuery, outputFormat, outputFile);
 	}
 
 	private void updateMode() {
@@ -199,6 +252,9 @@ public class DuaTiaDocumentRetrieverApplication implements CommandLineRunner {
 			case RESET_RETRY_COUNTER:
 				docStatusHelper.resetRetryCountForFailedFiles();
 				break;
+			case REBUILD_INDEXES:
+				docStatusHelper.rebuildIndexes();
+				break;
 		}
 	}
 
@@ -217,6 +273,7 @@ public class DuaTiaDocumentRetrieverApplication implements CommandLineRunner {
 	}
 
 	private enum UpdateTarget {
-		RESET_RETRY_COUNTER
+		RESET_RETRY_COUNTER,
+		REBUILD_INDEXES
 	}
 }
@@ -11,6 +11,9 @@ public class DuaTiaDocumentRetrieverConfiguration {
     @Value("${dua.tia.documentretriever.download.path}")
     private String downloadPath;
 
+    @Value("${dua.tia.documentretriever.download.partial-path}")
+    private String partialDownloadPath;
+
     @Value("${dua.tia.documentretriever.download.max-retry}")
     private int maxRetryCount;
 
@@ -40,4 +43,37 @@ public class DuaTiaDocumentRetrieverConfiguration {
 
     @Value("${dua.tia.documentretriever.open-citations-url}")
     private String openCitationsServiceUrl;
+
+    @Value("${dua.tia.documentretriever.external-metadata.connect-timeout-sec}")
+    private int externalServiceConnectTimeout;
+
+    @Value("${dua.tia.documentretriever.unpaywall-timeout-sec}")
+    private int unpaywallServiceTimeout;
+
+    @Value("${dua.tia.documentretriever.cross-ref-timeout-sec}")
+    private int crossRefServiceTimeout;
+
+    @Value("${dua.tia.documentretriever.open-citations-timeout-sec}")
+    private int openCitationsServiceTimeout;
+
+    @Value("${dua.tia.documentretriever.http.connect-timeout-sec}")
+    private int downloadConnectTimeout;
+
+    @Value("${dua.tia.documentretriever.http.max-connections-per-host}")
+    private int maxConnectionsPerHost;
+
+    @Value("${dua.tia.documentretriever.http.host-delay-ms}")
+    private long hostDelay;
+
+    @Value("${dua.tia.documentretriever.workers.pool-size}")
+    private int workerPoolSize;
+
+    @Value("${dua.tia.documentretriever.workers.max-per-host}")
+    private int workerMaxPerHost;
+
+    @Value("${dua.tia.documentretriever.workers.shutdown-timeout-sec}")
+    private int workerShutdownTimeout;
+
+    @Value("${dua.tia.documentretriever.queue-reaper-period-sec}")
+    private int queueReaperPeriod;
 }
@@ -0,0 +1,64 @@
+package com.exprivia.dfda.duatiadocumentretriever.business;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.exprivia.dfda.duatiadocumentretriever.DuaTiaDocumentRetrieverConfiguration;
+import com.exprivia.dfda.tia.service.DocumentQueueService;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * periodically returns to the queue the in-flight documents whose consumer
+ * did not acknowledge them in time (e.g. a retriever killed mid-download).
+ * Every retriever instance runs it, the queue service makes sure that each
+ * expired document is requeued only once.
+ */
+@Component
+@Slf4j
+public class DocumentQueueReaper {
+    @Autowired
+    private DuaTiaDocumentRetrieverConfiguration config;
+
+    @Autowired
+    private DocumentQueueService documentQueueService;
+
+    private ScheduledExecutorService scheduler;
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "document-queue-reaper");
+            t.setDaemon(true);
+            return t;
+        });
+
+        int period = Math.max(1, config.getQueueReaperPeriod());
+        scheduler.scheduleWithFixedDelay(this::reap, period, period, TimeUnit.SECONDS);
+        log.info("document queue reaper started, running every {} seconds", period);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private void reap() {
+        try {
+            documentQueueService.requeueExpiredDocumentEvents();
+        } catch (Exception e) {
+            log.error("cannot requeue expired document events", e);
+        }
+    }
+}
@@ -2,8 +2,12 @@ package com.exprivia.dfda.duatiadocumentretriever.business;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URI;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -31,6 +35,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
+import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Component
@@ -99,31 +104,36 @@ public class DocumentRetriever {
         // put metadata json in the temporary folder
         createMetadata(tempDir, docAttr);
 
+        // start the external service requests, running while the document is downloaded
+        List<ExternalServiceMetadata> externalMetadata = new ArrayList<>();
         if (docAttr.getDocument().getDoi() == null) {
             log.info("dois list is null, cannot create external service metadata for doc id {}", docId);
         } else {
-            // write additional metadata json from unpaywall service
+            // additional metadata json from unpaywall service
             if (config.isUnpaywallServiceMetadataEnabled()) {
-                createExternalServiceMetadata(
+                requestExternalServiceMetadata(
                     downloadUtil.new ExternalServiceUriResolverUnpaywall(), 
                     tempDir, 
-                    docAttr.getDocument().getDoi());
+                    docAttr.getDocument().getDoi(),
+                    externalMetadata);
             }
 
-            // write enrichment metadata json from cross-ref service
+            // enrichment metadata json from cross-ref service
             if (config.isCrossRefServiceMetadataEnabled()) {
-                createExternalServiceMetadata(
+                requestExternalServiceMetadata(
                     downloadUtil.new ExternalServiceUriResolverCrossRef(), 
                     tempDir, 
-                    docAttr.getDocument().getDoi());
+                    docAttr.getDocument().getDoi(),
+                    externalMetadata);
             }
 
-            // write enrichment metadata json from open-citations service
+            // enrichment metadata json from open-citations service
             if (config.isOpenCitationsServiceMetadataEnabled()) {
-                createExternalServiceMetadata(
+                requestExternalServiceMetadata(
                     downloadUtil.new ExternalServiceUriResolverOpenCitations(), 
                     tempDir, 
-                    docAttr.getDocument().getDoi());
+                    docAttr.getDocument().getDoi(),
+                    externalMetadata);
             }
         }
 
@@ -132,12 +142,23 @@ public class DocumentRetriever {
         documentProcessingStatus.initializeDownloadStatusValue(dirEventId);
 
         // actually download file
-        DocumentDownloadResult downloadResult = downloadDriver.download(downloadAction);
+        DocumentDownloadResult downloadResult;
+        try {
+            downloadResult = downloadDriver.download(downloadAction);
+        } finally {
+            // the metadata shall be in place before the metadata event is pushed
+            writeExternalServiceMetadata(externalMetadata);
+        }
 
         if (downloadResult.isSkipped()) {
             return downloadResult;
         }
 
+        // a download stopped by the shutdown is not a failed attempt
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CannotDownloadDocumentException("download of document " + docId + " interrupted");
+        }
+
         status.setDownloadTimestamp(Instant.now());
         if (downloadResult.isPartial() && 
             downloadResult.getFileName().size() < downloadResult.getMinimumRequired()) {
@@ -176,23 +197,52 @@ public class DocumentRetriever {
         }
     }
 
-    private void createExternalServiceMetadata(ExternalServiceUriResolver uriResolver, File outputDir, List<String> dois) {
+    private void requestExternalServiceMetadata(ExternalServiceUriResolver uriResolver, File outputDir, List<String> dois, 
+        List<ExternalServiceMetadata> externalMetadata) {
         String filePrefix = uriResolver.getServiceName();
         String fileExtension = ".json";
         File outputFile = new File(outputDir, filePrefix + fileExtension);
         for (int i = 0; i < dois.size(); i++) {
             String doi = dois.get(i);
+            URI uri = uriResolver.resolve(doi);
+            externalMetadata.add(new ExternalServiceMetadata(
+                filePrefix, 
+                doi, 
+                uri, 
+                outputFile, 
+                downloadUtil.requestExternalServiceMetadata(uriResolver, doi)));
+
+            // name the next file (if any) with a trailing number
+            outputFile = new File(outputDir, filePrefix + "-" + i + fileExtension);
+        }
+    }
+
+    /**
+     * wait for the external service responses, each request being bounded by its own timeout,
+     * and write them in the document directory
+     */
+    private void writeExternalServiceMetadata(List<ExternalServiceMetadata> externalMetadata) {
+        for (ExternalServiceMetadata metadata : externalMetadata) {
             try {
-                JsonNode n = downloadUtil.getJsonNodeFromURI(uriResolver.resolve(doi));
-                writeJson(outputFile, n);
+                writeJson(metadata.outputFile, metadata.response.join());
+            } catch (CompletionException e) {
+                log.error("cannot get " + metadata.serviceName + " for doi " + metadata.doi + ": " + 
+                    DownloadUtil.getJsonServiceFailure(metadata.uri, e).getMessage());
             } catch (Exception e) {
-                log.error("cannot get " + filePrefix + " for doi " + doi + ": " + e.getMessage());
+                log.error("cannot get " + metadata.serviceName + " for doi " + metadata.doi + ": " + e.getMessage());
             }
-            // name the next file (if any) with a trailing number
-            outputFile = new File(outputDir, filePrefix + "-" + i + fileExtension);
         }
     }
 
+    @AllArgsConstructor
+    private static class ExternalServiceMetadata {
+        private final String serviceName;
+        private final String doi;
+        private final URI uri;
+        private final File outputFile;
+        private final CompletableFuture<JsonNode> response;
+    }
+
     private void writeJson(File outputFile, Object jsonValue) throws StreamWriteException, DatabindException, IOException  {
         ObjectMapper mapper = new ObjectMapper();
         mapper.enable(SerializationFeature.INDENT_OUTPUT);
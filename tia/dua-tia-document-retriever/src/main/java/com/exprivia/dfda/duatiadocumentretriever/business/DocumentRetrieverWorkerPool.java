@@ -0,0 +1,301 @@
+package com.exprivia.dfda.duatiadocumentretriever.business;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.exprivia.dfda.duatiadocumentretriever.DuaTiaDocumentRetrieverConfiguration;
+import com.exprivia.dfda.duatiadocumentretriever.business.docretriever.util.HostPolitenessScheduler;
+import com.exprivia.dfda.tia.model.DocumentCommonAttributes;
+import com.exprivia.dfda.tia.service.DocumentQueueMessage;
+import com.exprivia.dfda.tia.service.DocumentQueueService;
+import com.exprivia.dfda.tia.service.exception.DocumentQueueException;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * bounded pool of download workers used in daemon mode.
+ *
+ * A document is handed to a worker only when a worker is free and the
+ * number of documents in progress for the same host is below the configured
+ * limit and the host politeness delay has elapsed, otherwise it is kept
+ * aside and dispatched as soon as its host has room again, letting documents
+ * of other hosts go first. The documents without urls, whose host is only
+ * found while downloading, are limited by the free workers alone.
+ *
+ * Each document is acknowledged to the queue once processed; the documents
+ * not processed, including the downloads interrupted by the shutdown,
+ * are given back to the queue.
+ */
+@Component
+@Slf4j
+public class DocumentRetrieverWorkerPool {
+    private static final String UNKNOWN_HOST = "unknown-host";
+    private static final long MIN_DEFERRED_CHECK_MILLIS = 100;
+
+    @Autowired
+    private DuaTiaDocumentRetrieverConfiguration config;
+
+    @Autowired
+    private DocumentQueueService documentQueueService;
+
+    @Autowired
+    private HostPolitenessScheduler hostPoliteness;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workerReleased = lock.newCondition();
+
+    private final Map<String, Integer> busyHosts = new HashMap<>();
+    private final List<DocumentQueueMessage> deferredDocuments = new LinkedList<>();
+    private int busyWorkers = 0;
+    private boolean running = false;
+    // set when the shutdown interrupts the running downloads
+    private volatile boolean aborted = false;
+
+    private ThreadPoolExecutor executor;
+    private Consumer<DocumentCommonAttributes> handler;
+
+    public void start(Consumer<DocumentCommonAttributes> handler) {
+        lock.lock();
+        try {
+            if (running) {
+                throw new IllegalStateException("worker pool already started");
+            }
+
+            int poolSize = Math.max(1, config.getWorkerPoolSize());
+            this.handler = handler;
+            this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                new WorkerThreadFactory());
+            this.running = true;
+
+            log.info("worker pool started with {} workers, max {} per host", poolSize, getMaxPerHost());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isRunning() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * wait until a new document can be accepted by the pool
+     * @param timeoutMillis maximum waiting time
+     * @return true if a new document can be submitted
+     */
+    public boolean awaitCapacity(long timeoutMillis) throws InterruptedException {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        lock.lock();
+        try {
+            dispatchDeferredDocuments();
+            while (running && !hasCapacity()) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                // deferred documents can become ready when their host delay elapses
+                long wait = deferredDocuments.isEmpty() ? remaining : 
+                    Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(Math.max(MIN_DEFERRED_CHECK_MILLIS, config.getHostDelay())));
+                remaining -= wait - workerReleased.awaitNanos(wait);
+                dispatchDeferredDocuments();
+            }
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void submit(DocumentQueueMessage message) {
+        lock.lock();
+        try {
+            if (!running) {
+                log.warn("worker pool is stopped, document {} returned to the queue", message.getDocument().getId());
+                requeue(message);
+                return;
+            }
+
+            if (!tryDispatch(message)) {
+                log.debug("host {} is busy, document {} deferred", getHost(message.getDocument()), message.getDocument().getId());
+                deferredDocuments.add(message);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lock.lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+
+            // documents not yet started go back to the queue for other instances
+            for (DocumentQueueMessage message : deferredDocuments) {
+                requeue(message);
+            }
+            deferredDocuments.clear();
+
+            workerReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        log.info("waiting up to {} seconds for running downloads to complete", config.getWorkerShutdownTimeout());
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(config.getWorkerShutdownTimeout(), TimeUnit.SECONDS)) {
+                log.warn("running downloads not completed in time, {} workers interrupted", executor.getActiveCount());
+                aborted = true;
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            aborted = true;
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        log.info("worker pool stopped");
+    }
+
+    private boolean hasCapacity() {
+        return busyWorkers < executor.getMaximumPoolSize() &&
+            deferredDocuments.size() < executor.getMaximumPoolSize();
+    }
+
+    private void dispatchDeferredDocuments() {
+        Iterator<DocumentQueueMessage> it = deferredDocuments.iterator();
+        while (it.hasNext() && busyWorkers < executor.getMaximumPoolSize()) {
+            if (tryDispatch(it.next())) {
+                it.remove();
+            }
+        }
+    }
+
+    private boolean tryDispatch(DocumentQueueMessage message) {
+        DocumentCommonAttributes doc = message.getDocument();
+        String host = getHost(doc);
+        int hostCount = busyHosts.getOrDefault(host, 0);
+
+        if (busyWorkers >= executor.getMaximumPoolSize()) {
+            return false;
+        }
+        if (!UNKNOWN_HOST.equals(host) &&
+            (hostCount >= getMaxPerHost() || hostPoliteness.getRemainingDelay(host) > 0)) {
+            return false;
+        }
+
+        busyWorkers++;
+        busyHosts.put(host, hostCount + 1);
+
+        executor.execute(() -> {
+            try {
+                handler.accept(doc);
+            } catch (Exception e) {
+                log.error("unexpected error processing document " + doc.getId(), e);
+            } finally {
+                // a download interrupted by the shutdown is left to another instance;
+                // the interrupt flag cannot be relied upon, the handler may have cleared it
+                if (aborted) {
+                    requeue(message);
+                } else {
+                    acknowledge(message);
+                }
+                release(host);
+            }
+        });
+        return true;
+    }
+
+    private void release(String host) {
+        lock.lock();
+        try {
+            busyWorkers--;
+            int hostCount = busyHosts.getOrDefault(host, 1) - 1;
+            if (hostCount <= 0) {
+                busyHosts.remove(host);
+            } else {
+                busyHosts.put(host, hostCount);
+            }
+            workerReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void requeue(DocumentQueueMessage message) {
+        try {
+            documentQueueService.requeueDocumentEvent(message);
+        } catch (DocumentQueueException e) {
+            log.error("cannot return document " + message.getDocument().getId() + " to the queue", e);
+        }
+    }
+
+    private void acknowledge(DocumentQueueMessage message) {
+        try {
+            documentQueueService.acknowledgeDocumentEvent(message);
+        } catch (DocumentQueueException e) {
+            log.error("cannot acknowledge document " + message.getDocument().getId(), e);
+        }
+    }
+
+    private int getMaxPerHost() {
+        return Math.max(1, config.getWorkerMaxPerHost());
+    }
+
+    private static String getHost(DocumentCommonAttributes doc) {
+        if (doc.getDownloadInfo() == null || doc.getDownloadInfo().getDocumentUrl() == null) {
+            return UNKNOWN_HOST;
+        }
+
+        for (String url : doc.getDownloadInfo().getDocumentUrl()) {
+            if (url == null || url.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                String host = URI.create(url.trim().replace(" ", "%20")).getHost();
+                if (host != null) {
+                    return host.toLowerCase();
+                }
+            } catch (IllegalArgumentException e) {
+                log.debug("cannot get host from url {}", url);
+            }
+        }
+        return UNKNOWN_HOST;
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "download-worker-" + counter.incrementAndGet());
+            t.setDaemon(false);
+            return t;
+        }
+    }
+}
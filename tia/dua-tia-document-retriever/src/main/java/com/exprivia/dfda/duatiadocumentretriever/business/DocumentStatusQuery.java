@@ -0,0 +1,35 @@
+package com.exprivia.dfda.duatiadocumentretriever.business;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.exprivia.dfda.tia.model.DocumentStatus;
+
+import lombok.Data;
+
+/**
+ * selection criteria of the document status export, null criteria match all the statuses
+ */
+@Data
+public class DocumentStatusQuery {
+    // statuses in any of these states, all the states if empty
+    private List<DocumentStatus.State> states = new ArrayList<>();
+
+    private String group;
+    private String repository;
+    private String mission;
+
+    // download timestamp range, from inclusive and to exclusive
+    private Instant from;
+    private Instant to;
+
+    public boolean matches(DocumentStatus status) {
+        return (states.isEmpty() || states.contains(status.getState())) &&
+            (group == null || group.equals(status.getGroup())) &&
+            (repository == null || repository.equals(status.getRepository())) &&
+            (mission == null || mission.equals(status.getMission())) &&
+            (from == null || status.getDownloadTimestamp() != null && !status.getDownloadTimestamp().isBefore(from)) &&
+            (to == null || status.getDownloadTimestamp() != null && status.getDownloadTimestamp().isBefore(to));
+    }
+}
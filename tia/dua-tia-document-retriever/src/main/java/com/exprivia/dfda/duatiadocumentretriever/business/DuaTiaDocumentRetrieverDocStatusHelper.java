@@ -1,60 +1,186 @@
 package com.exprivia.dfda.duatiadocumentretriever.business;
 
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import com.exprivia.dfda.duatiadocumentretriever.DuaTiaDocumentRetrieverConfiguration;
 import com.exprivia.dfda.tia.model.DocumentStatus;
-import com.exprivia.dfda.tia.repository.DocumentStatusRepository;
+import com.exprivia.dfda.tia.service.DocumentStatusService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 @Component
 public class DuaTiaDocumentRetrieverDocStatusHelper {
+    // document statuses read from redis with each round trip
+    private static final int SCAN_BATCH_SIZE = 1000;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     @Autowired
-    private DocumentStatusRepository documentStatusRepository;
+    private DocumentStatusService documentStatusService;
 
     @Autowired
     private DuaTiaDocumentRetrieverConfiguration config;
 
-    public void query(boolean showCompleted, boolean showStillRetrying, boolean showFailed) {
-        int count = 0;
-        for (DocumentStatus docStatus : documentStatusRepository.findAll()) {
-            if (docStatus.isCompleted() && showCompleted ||
-                !docStatus.isCompleted() && docStatus.getRetryCount() > 0 && showStillRetrying ||
-                !docStatus.isCompleted() && docStatus.getRetryCount() == 0 && showFailed) {
+    public enum OutputFormat {
+        // the legacy "id=...,completed=..." lines
+        TEXT,
+        CSV,
+        // one json object per line
+        JSONL
+    }
+
+    /**
+     * export the matching document statuses, reading them a page at a time
+     * @param outputFile the output file, standard output if null (standard error for the TEXT format)
+     */
+    public void query(DocumentStatusQuery query, OutputFormat format, String outputFile) throws IOException {
+        OutputStream outputStream = outputFile != null ?
+            new FileOutputStream(outputFile) :
+            format == OutputFormat.TEXT ? System.err : System.out;
 
-                printDocumentStatus(docStatus);
-                
-                count++;
+        AtomicLong count = new AtomicLong();
+        Writer out = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        try {
+            if (format == OutputFormat.CSV) {
+                out.write("id,group,repository,mission,state,completed,retries_left,download_timestamp\n");
+            }
+
+            Consumer<DocumentStatus> exporter = docStatus -> {
+                // statuses saved before the state was introduced
+                docStatus.updateState();
+                if (query.matches(docStatus)) {
+                    writeDocumentStatus(out, format, docStatus);
+                    count.incrementAndGet();
+                }
+            };
+
+            // read only the statuses of the most selective index
+            if (!query.getStates().isEmpty()) {
+                for (DocumentStatus.State state : query.getStates()) {
+                    documentStatusService.scanEntities(state, SCAN_BATCH_SIZE, exporter);
+                }
+            } else if (query.getGroup() != null) {
+                documentStatusService.scanEntities("group", query.getGroup(), SCAN_BATCH_SIZE, exporter);
+            } else if (query.getRepository() != null) {
+                documentStatusService.scanEntities("repository", query.getRepository(), SCAN_BATCH_SIZE, exporter);
+            } else if (query.getMission() != null) {
+                documentStatusService.scanEntities("mission", query.getMission(), SCAN_BATCH_SIZE, exporter);
+            } else {
+                documentStatusService.scanEntities(null, SCAN_BATCH_SIZE, exporter);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (outputFile != null) {
+                out.close();
+            } else {
+                out.flush();
             }
         }
-        System.out.print("total=");
-        System.out.println(count);
+
+        // keep the standard output clean when the statuses are written there
+        PrintStream summary = outputFile == null && format != OutputFormat.TEXT ? System.err : System.out;
+        summary.print("total=");
+        summary.println(count.get());
     }
 
     public void resetRetryCountForFailedFiles() {
-        int count = 0;
-        for (DocumentStatus docStatus : documentStatusRepository.findAll()) {
+        AtomicLong count = new AtomicLong();
+
+        documentStatusService.scanEntities(DocumentStatus.State.FAILED, SCAN_BATCH_SIZE, docStatus -> {
             if (!docStatus.isCompleted() && docStatus.getRetryCount() == 0) {
 
                 docStatus.setRetryCount(config.getMaxRetryCount());
-                documentStatusRepository.save(docStatus);
-                
+                documentStatusService.saveEntity(docStatus);
+
                 printDocumentStatus(docStatus);
 
-                count++;
+                count.incrementAndGet();
             }
-        }
+        });
+        System.out.print("total=");
+        System.out.println(count.get());
+    }
+
+    /**
+     * index the document statuses saved before the state and id part indexes were introduced
+     */
+    public void rebuildIndexes() {
+        long count = documentStatusService.rebuildIndexes(SCAN_BATCH_SIZE);
         System.out.print("total=");
         System.out.println(count);
     }
 
+    private void writeDocumentStatus(Writer out, OutputFormat format, DocumentStatus docStatus) {
+        try {
+            switch (format) {
+                case CSV:
+                    out.write(String.join(",",
+                        csvValue(docStatus.getId()),
+                        csvValue(docStatus.getGroup()),
+                        csvValue(docStatus.getRepository()),
+                        csvValue(docStatus.getMission()),
+                        csvValue(docStatus.getState()),
+                        String.valueOf(docStatus.isCompleted()),
+                        String.valueOf(docStatus.getRetryCount()),
+                        csvValue(docStatus.getDownloadTimestamp())));
+                    out.write('\n');
+                    break;
+                case JSONL:
+                    ObjectNode node = MAPPER.createObjectNode();
+                    node.put("id", docStatus.getId());
+                    node.put("group", docStatus.getGroup());
+                    node.put("repository", docStatus.getRepository());
+                    node.put("mission", docStatus.getMission());
+                    node.put("state", docStatus.getState() == null ? null : docStatus.getState().name());
+                    node.put("completed", docStatus.isCompleted());
+                    node.put("retries_left", docStatus.getRetryCount());
+                    node.put("download_timestamp", docStatus.getDownloadTimestamp() == null ? null : docStatus.getDownloadTimestamp().toString());
+                    out.write(MAPPER.writeValueAsString(node));
+                    out.write('\n');
+                    break;
+                default:
+                    out.write(formatDocumentStatus(docStatus));
+                    out.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String s = value.toString();
+        if (s.contains(",") || s.contains("\"") || s.contains("\n")) {
+            return "\"" + s.replace("\"", "\"\"") + "\"";
+        }
+        return s;
+    }
+
+    private static String formatDocumentStatus(DocumentStatus docStatus) {
+        return String.format("id=%s,completed=%b,retries-left=%d,timestamp=%s", 
+            docStatus.getId(),
+            docStatus.isCompleted(),
+            docStatus.getRetryCount(),
+            docStatus.getDownloadTimestamp());
+    }
+
     private void printDocumentStatus(DocumentStatus docStatus) {
-        System.err.println(
-            String.format("id=%s,completed=%b,retries-left=%d,timestamp=%s", 
-                docStatus.getId(),
-                docStatus.isCompleted(),
-                docStatus.getRetryCount(),
-                docStatus.getDownloadTimestamp())
-            );    
+        System.err.println(formatDocumentStatus(docStatus));
     }
 }
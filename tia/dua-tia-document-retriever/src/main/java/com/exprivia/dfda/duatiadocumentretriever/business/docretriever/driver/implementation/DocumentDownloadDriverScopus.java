@@ -130,6 +130,9 @@ public class DocumentDownloadDriverScopus implements DocumentDownloadDriverInter
             response = downloadUtil.downloadAsString(inputUri, downloadUtil.defaultHeaders());
             htmlContents = response.body();
         } catch (IOException|InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
             log.error("cannot download html page from doi resolution for " + inputUri.toString(), e);
             downloadResult.appendError("cannot download html page from doi resolution for {}", inputUri.toString());
             downloadResult.appendError(e);
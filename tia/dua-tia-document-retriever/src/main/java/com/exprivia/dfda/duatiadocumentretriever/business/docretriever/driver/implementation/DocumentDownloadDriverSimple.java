@@ -159,6 +159,10 @@ public class DocumentDownloadDriverSimple implements DocumentDownloadDriverInter
             downloadResult.appendError(e);
             return false;
         } catch (IOException | InterruptedException | IllegalArgumentException e) {
+            if (e instanceof InterruptedException) {
+                // let the caller know that the download has been stopped
+                Thread.currentThread().interrupt();
+            }
             // this can be a temporary issue, retry later
             log.error("document download {} ({}/{}({})): url '{}' cannot download file: {}",
                 downloadDocument.getId(), 
@@ -183,9 +187,9 @@ public class DocumentDownloadDriverSimple implements DocumentDownloadDriverInter
     }
 
     private String getDownloadUrlFromUnpaywall(String doi) throws IOException {
-        JsonNode root = downloadUtil.getJsonNodeFromURI(
-            downloadUtil.new ExternalServiceUriResolverUnpaywall().resolve(doi)
-            );
+        JsonNode root = downloadUtil.getExternalServiceMetadata(
+            downloadUtil.new ExternalServiceUriResolverUnpaywall(), 
+            doi);
 
         JsonNode bestOaLocation = root.get("best_oa_location");
         if (bestOaLocation == null) {
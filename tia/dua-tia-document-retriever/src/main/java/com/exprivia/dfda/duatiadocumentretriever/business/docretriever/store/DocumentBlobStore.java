@@ -0,0 +1,218 @@
+package com.exprivia.dfda.duatiadocumentretriever.business.docretriever.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * content addressed store of the downloaded files, shared by all the documents.
+ *
+ * Each file is kept once in the store, named after its SHA-256, and the
+ * document directories hold hard links to it: the same PDF harvested by
+ * several search bindings or missions takes its space once. The hash of
+ * the contents downloaded from each url is indexed in redis, so that an
+ * url already downloaded is linked without being downloaded again.
+ *
+ * The stored files are never garbage-collected. They are read-only, and so
+ * are the document files linked to them: a document file shall be replaced,
+ * never modified in place, since the change would reach the stored file and
+ * every other document linked to it.
+ */
+@Component
+@Slf4j
+public class DocumentBlobStore {
+    private static final String URL_INDEX_KEY = "document-blob-url-index";
+    private static final String STATS_KEY = "document-blob-store-stats";
+    private static final String INDEX_SEPARATOR = " ";
+
+    @Value("${dua.tia.documentretriever.blob-store.enabled}")
+    private boolean enabled;
+
+    @Value("${dua.tia.documentretriever.blob-store.path}")
+    private String storePath;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    private File storeDir;
+
+    @PostConstruct
+    public void initialize() {
+        if (!enabled) {
+            log.info("document blob store disabled");
+            return;
+        }
+
+        storeDir = new File(storePath);
+        if (!storeDir.exists()) {
+            log.info("creating document blob store path: {}", storeDir.getAbsolutePath());
+            storeDir.mkdirs();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * @return the stored contents last downloaded from the url, null if not in the store
+     */
+    public StoredUrl getStoredUrl(URI uri) {
+        if (!enabled) {
+            return null;
+        }
+
+        HashOperations<String, String, String> hashOp = redisTemplate.opsForHash();
+        String url = uri.toString();
+        String entry;
+        try {
+            entry = hashOp.get(URL_INDEX_KEY, url);
+        } catch (RuntimeException e) {
+            log.warn("cannot read document blob index for url {}: {}", url, e.getMessage());
+            return null;
+        }
+        if (entry == null) {
+            return null;
+        }
+
+        String[] parts = entry.split(INDEX_SEPARATOR, 2);
+        if (parts.length != 2 || !getBlobFile(parts[0]).exists()) {
+            log.warn("document blob of url {} not found, downloading again", url);
+            return null;
+        }
+
+        return new StoredUrl(parts[0], parts[1]);
+    }
+
+    /**
+     * link in the local path the stored contents of an url, instead of downloading them
+     * @return the linked file name
+     */
+    public String link(StoredUrl storedUrl, String localPath) throws IOException {
+        File blob = getBlobFile(storedUrl.getHash());
+        File localFile = new File(localPath, storedUrl.getFileName());
+        link(blob, localFile.toPath());
+
+        log.info("linked stored file {} as {}", storedUrl.getHash(), localFile.getAbsolutePath());
+        reportSaving("skipped-downloads", blob.length());
+
+        return localFile.getAbsolutePath();
+    }
+
+    /**
+     * move a downloaded file in the store, leaving a link in its place;
+     * if the same contents are already stored, the downloaded copy is dropped
+     * @param sha256 hex digest of the file contents
+     */
+    public void add(URI uri, String localFileName, byte[] sha256) throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        String hash = HexFormat.of().formatHex(sha256);
+        Path localFile = Path.of(localFileName);
+        File blob = getBlobFile(hash);
+        long size = Files.size(localFile);
+
+        if (blob.exists()) {
+            link(blob, localFile);
+
+            log.info("file {} already stored as {}", localFileName, hash);
+            reportSaving("deduplicated-files", size);
+        } else {
+            blob.getParentFile().mkdirs();
+            try {
+                Files.createLink(blob.toPath(), localFile);
+                makeReadOnly(blob);
+            } catch (FileAlreadyExistsException e) {
+                // stored meanwhile by another download
+                link(blob, localFile);
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                // not on the same file system
+                Files.copy(localFile, blob.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                makeReadOnly(blob);
+            }
+        }
+
+        try {
+            redisTemplate.opsForHash().put(URL_INDEX_KEY, uri.toString(), 
+                hash + INDEX_SEPARATOR + localFile.getFileName().toString());
+        } catch (RuntimeException e) {
+            log.warn("cannot index document blob of url {}: {}", uri, e.getMessage());
+        }
+    }
+
+    /**
+     * update the storage saved by the store, counted by all the retrievers
+     */
+    private void reportSaving(String counter, long size) {
+        try {
+            Long count = redisTemplate.opsForHash().increment(STATS_KEY, counter, 1);
+            Long savedBytes = redisTemplate.opsForHash().increment(STATS_KEY, counter + "-bytes", size);
+            log.info("{} bytes saved; {} so far: {}, {} bytes", size, counter, count, savedBytes);
+        } catch (RuntimeException e) {
+            log.warn("cannot update document blob store stats: {}", e.getMessage());
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class StoredUrl {
+        private String hash;
+        private String fileName;
+    }
+
+    private File getBlobFile(String hash) {
+        return new File(new File(storeDir, hash.substring(0, 2)), hash);
+    }
+
+    private static void link(File blob, Path localFile) throws IOException {
+        // the files stored before they were made read-only
+        makeReadOnly(blob);
+
+        Files.deleteIfExists(localFile);
+        try {
+            Files.createLink(localFile, blob.toPath());
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            // not on the same file system
+            Files.copy(blob.toPath(), localFile);
+        }
+    }
+
+    /**
+     * protect the stored file, shared with the linked document files, from in-place changes;
+     * the permissions are not enforced for the root user
+     */
+    private static void makeReadOnly(File blob) {
+        if (blob.canWrite() && !blob.setWritable(false, false)) {
+            log.warn("cannot make document blob {} read-only", blob.getAbsolutePath());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.exprivia.dfda.duatiadocumentretriever.business.docretriever.store;
+
+import java.net.URI;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * validators of the urls downloaded by all the retrievers, used to send
+ * conditional requests and to resume the interrupted downloads
+ */
+@Component
+@Slf4j
+public class DownloadValidatorStore {
+    private static final String KEY = "document-download-validators";
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * @return the validators of the last response of the url, null if unknown
+     */
+    public DownloadValidators get(URI uri) {
+        HashOperations<String, String, String> hashOp = redisTemplate.opsForHash();
+        try {
+            String value = hashOp.get(KEY, uri.toString());
+            return value != null ? objectMapper.readValue(value, DownloadValidators.class) : null;
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("cannot read download validators of url {}: {}", uri, e.getMessage());
+            return null;
+        }
+    }
+
+    public void put(URI uri, DownloadValidators validators) {
+        try {
+            redisTemplate.opsForHash().put(KEY, uri.toString(), objectMapper.writeValueAsString(validators));
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("cannot write download validators of url {}: {}", uri, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.exprivia.dfda.duatiadocumentretriever.business.docretriever.store;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * validators of the last response of an url, and the name of the file it was saved to
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DownloadValidators {
+    private String etag;
+
+    private String lastModified;
+
+    private String fileName;
+
+    public boolean hasValidator() {
+        return etag != null || lastModified != null;
+    }
+
+    /**
+     * @return the validator for If-Range, the entity tag if any
+     */
+    @JsonIgnore
+    public String getRangeValidator() {
+        return etag != null ? etag : lastModified;
+    }
+}
@@ -5,6 +5,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Base64;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import org.springframework.stereotype.Component;
 
@@ -24,4 +25,17 @@ public class DataUtil {
 
         return new String(out.toByteArray());
     }
+
+    public String compress(String string) throws IOException {
+        if (string == null) {
+            return null;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(string.getBytes());
+        }
+
+        return Base64.getEncoder().encodeToString(out.toByteArray());
+    }
 }
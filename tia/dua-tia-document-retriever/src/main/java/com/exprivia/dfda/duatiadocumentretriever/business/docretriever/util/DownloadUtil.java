@@ -2,37 +2,68 @@ package com.exprivia.dfda.duatiadocumentretriever.business.docretriever.util;
 
 import java.io.InputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URLDecoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.net.http.HttpHeaders;
+import java.net.http.HttpTimeoutException;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
-import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ContentDisposition;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import com.exprivia.dfda.duatiadocumentretriever.DuaTiaDocumentRetrieverConfiguration;
+import com.exprivia.dfda.duatiadocumentretriever.business.docretriever.store.DocumentBlobStore;
+import com.exprivia.dfda.duatiadocumentretriever.business.docretriever.store.DocumentBlobStore.StoredUrl;
+import com.exprivia.dfda.duatiadocumentretriever.business.docretriever.store.DownloadValidatorStore;
+import com.exprivia.dfda.duatiadocumentretriever.business.docretriever.store.DownloadValidators;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 
 @Component
 @Slf4j
 public class DownloadUtil {
     private static final int MAX_HOPS = 10;
+    private static final int HTTP_PARTIAL_CONTENT = 206;
+    private static final int HTTP_NOT_MODIFIED = 304;
+    private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_SERVICE_UNAVAILABLE = 503;
+    private static final Pattern CONTENT_RANGE_PATTERN = Pattern.compile("bytes\\s+(\\d+)-");
     private static final String[] DEFAULT_HEADERS = { 
         "User-Agent", "Mozilla/5.0 (X11; Linux x86_64; rv:126.0) Gecko/20100101 Firefox/126.0" 
     };
@@ -40,32 +71,110 @@ public class DownloadUtil {
     @Autowired
     private DuaTiaDocumentRetrieverConfiguration config;
 
+    @Autowired
+    private ExternalMetadataCache externalMetadataCache;
+
+    @Autowired
+    private DocumentBlobStore documentBlobStore;
+
+    @Autowired
+    private DownloadValidatorStore downloadValidatorStore;
+
+    @Autowired
+    private HostPolitenessScheduler hostPoliteness;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // external service requests in progress, by service and doi
+    private final Map<String, CompletableFuture<JsonNode>> pendingExternalServiceRequests = new ConcurrentHashMap<>();
+
+    // shared by the downloads, keeping the connections alive and multiplexing the http/2 ones
+    private HttpClient downloadClient;
+
+    // shared by the json services requests, keeping their connections alive
+    private HttpClient jsonServiceClient;
+
+    @PostConstruct
+    public void initialize() {
+        downloadClient = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NEVER)     // manually handle the redirection flow
+            .connectTimeout(Duration.ofSeconds(config.getDownloadConnectTimeout()))
+            .build();
+
+        jsonServiceClient = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(config.getExternalServiceConnectTimeout()))
+            .build();
+    }
+
     public String[] defaultHeaders() {
         return DEFAULT_HEADERS;
     }
 
+    /**
+     * download the url contents in the local path.
+     *
+     * An url already downloaded is requested with its validators, and on 304 the
+     * previous copy is used; an interrupted download is kept in a .part file and
+     * resumed with a range request on the next attempt, if the server provided
+     * a validator to check that the contents did not change meanwhile.
+     * @return the local file name
+     */
     public String downloadFile(URI uri, String localPath, String... headers) throws IOException, InterruptedException {
+        // the host connection slot is held until the file is written
+        try (HostPolitenessScheduler.Session session = hostPoliteness.openSession()) {
+            return downloadFile(uri, localPath, session, headers);
+        }
+    }
+
+    private String downloadFile(URI uri, String localPath, HostPolitenessScheduler.Session session, String... headers) 
+        throws IOException, InterruptedException {
+        StoredUrl storedUrl = documentBlobStore.getStoredUrl(uri);
+        DownloadValidators validators = downloadValidatorStore.get(uri);
+        boolean validated = validators != null && validators.hasValidator();
+
+        if (storedUrl != null && !validated) {
+            // contents already downloaded for another document, with no way to check for changes
+            return documentBlobStore.link(storedUrl, localPath);
+        }
+
+        // copy of the contents still valid if not modified
+        File previousFile = validated && validators.getFileName() != null ? 
+            new File(localPath, validators.getFileName()) : null;
+        boolean conditional = validated && (storedUrl != null || (previousFile != null && previousFile.exists()));
+
+        File partFile = getPartFile(uri, localPath);
+        long resumeFrom = !conditional && validated && partFile.exists() ? partFile.length() : 0;
+
+        List<String> requestHeaders = new ArrayList<>(Arrays.asList(headers));
+        if (conditional) {
+            addHeader(requestHeaders, "If-None-Match", validators.getEtag());
+            addHeader(requestHeaders, "If-Modified-Since", validators.getLastModified());
+        } else if (resumeFrom > 0) {
+            addHeader(requestHeaders, "Range", "bytes=" + resumeFrom + "-");
+            addHeader(requestHeaders, "If-Range", validators.getRangeValidator());
+        }
+
         boolean moved = false;
         int availableHops = MAX_HOPS;
 
-        HttpClient httpClient = HttpClient.newBuilder()
-            .followRedirects(HttpClient.Redirect.NEVER)     // manually handle the redirection flow
-            .build();
-        
         URI currentUri = uri;
         HttpResponse<InputStream> httpResponse = null;
         do {
             HttpRequest httpRequest = HttpRequest
                 .newBuilder(currentUri)
-                .headers(headers)
+                .headers(requestHeaders.toArray(new String[0]))
                 .build();
-            httpResponse = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
+            session.acquire(currentUri);
+            httpResponse = downloadClient.send(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
             
             int httpStatus = httpResponse.statusCode();
             int httpStatusClass = httpStatus / 100;
-            moved = httpStatusClass == 3;
+            moved = httpStatusClass == 3 && httpStatus != HTTP_NOT_MODIFIED;
 
             if (moved) {
+                httpResponse.body().close();
+
                 /*
                  * this piece of code does not take into consideration HTTP<->HTTPS
                  * jumps that can lead to security risks!!
@@ -76,6 +185,12 @@ public class DownloadUtil {
 
                 availableHops--;
             } else if (httpStatusClass == 4 || httpStatusClass == 5) {
+                httpResponse.body().close();
+                backOffIfAsked(currentUri, httpResponse);
+                if (httpStatus == HTTP_RANGE_NOT_SATISFIABLE) {
+                    // restart from scratch on the next attempt
+                    Files.deleteIfExists(partFile.toPath());
+                }
                 throw new IOException("http error " + httpStatus + " returned by url " + currentUri.toString());
             }
         } while (availableHops > 0 && moved);
@@ -84,11 +199,20 @@ public class DownloadUtil {
             throw new IOException("maximum number of location redirects reached");
         }
 
+        if (httpResponse.statusCode() == HTTP_NOT_MODIFIED) {
+            httpResponse.body().close();
+            if (!conditional) {
+                throw new IOException("unexpected http status 304 returned by url " + uri);
+            }
+            log.info("url {} not modified since last download", uri);
+            return storedUrl != null ? 
+                documentBlobStore.link(storedUrl, localPath) : 
+                previousFile.getAbsolutePath();
+        }
+
         String contentType = httpResponse.headers().firstValue("Content-Type").orElse(null);
         String contentDisposition = httpResponse.headers().firstValue("Content-Disposition").orElse(null);
 
-        ReadableByteChannel readableByteChannel = Channels.newChannel(httpResponse.body());
-
         String fullPathName = uri.getPath();
         // set the output filename default as the url path filename part
         String localFileName = localPath + File.separator + fullPathName.substring(fullPathName.lastIndexOf('/') + 1, fullPathName.length());
@@ -111,22 +235,88 @@ public class DownloadUtil {
             }
         }
 
-        try (FileOutputStream fileOutputStream = new FileOutputStream(localFileName)) {
-            FileChannel fileChannel = fileOutputStream.getChannel();
-            fileChannel.transferFrom(readableByteChannel, 0, Long.MAX_VALUE);
+        // hash the contents while they are written
+        MessageDigest digest = documentBlobStore.createDigest();
+
+        boolean resumed = httpResponse.statusCode() == HTTP_PARTIAL_CONTENT;
+        if (resumed) {
+            long rangeStart = getContentRangeStart(httpResponse.headers());
+            if (rangeStart != resumeFrom) {
+                httpResponse.body().close();
+                Files.deleteIfExists(partFile.toPath());
+                throw new IOException("unexpected content range start " + rangeStart + " instead of " + resumeFrom + " returned by url " + uri);
+            }
 
-            return localFileName;
+            log.info("resuming download of url {} from byte {}", uri, resumeFrom);
+            try (InputStream partInputStream = new DigestInputStream(Files.newInputStream(partFile.toPath()), digest)) {
+                partInputStream.transferTo(OutputStream.nullOutputStream());
+            }
+        } else {
+            HttpHeaders responseHeaders = httpResponse.headers();
+            validators = new DownloadValidators(
+                responseHeaders.firstValue("ETag").orElse(null),
+                responseHeaders.firstValue("Last-Modified").orElse(null),
+                new File(localFileName).getName());
+            downloadValidatorStore.put(uri, validators);
         }
+
+        partFile.getParentFile().mkdirs();
+        try (FileChannel fileChannel = FileChannel.open(partFile.toPath(), 
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            InputStream body = new DigestInputStream(httpResponse.body(), digest)) {
+            if (resumed) {
+                fileChannel.position(resumeFrom);
+            } else {
+                fileChannel.truncate(0);
+            }
+            // unlike FileChannel.transferFrom(), which returns the bytes received so far,
+            // the copy fails when the connection is lost halfway
+            body.transferTo(Channels.newOutputStream(fileChannel));
+        } catch (IOException e) {
+            if (!validators.hasValidator()) {
+                // cannot be resumed
+                Files.deleteIfExists(partFile.toPath());
+            }
+            throw e;
+        }
+
+        Files.move(partFile.toPath(), Path.of(localFileName), StandardCopyOption.REPLACE_EXISTING);
+
+        documentBlobStore.add(uri, localFileName, digest.digest());
+
+        return localFileName;
+    }
+
+    /**
+     * @return the file keeping the contents of the url received so far for a document
+     */
+    private File getPartFile(URI uri, String localPath) {
+        MessageDigest digest = documentBlobStore.createDigest();
+        String name = HexFormat.of().formatHex(digest.digest((localPath + " " + uri).getBytes(StandardCharsets.UTF_8)));
+        return new File(config.getPartialDownloadPath(), name + ".part");
+    }
+
+    private static void addHeader(List<String> headers, String name, String value) {
+        if (value != null) {
+            headers.add(name);
+            headers.add(value);
+        }
+    }
+
+    private static long getContentRangeStart(HttpHeaders headers) throws IOException {
+        // bytes <first>-<last>/<length>
+        String contentRange = headers.firstValue("Content-Range").orElse("");
+        Matcher m = CONTENT_RANGE_PATTERN.matcher(contentRange);
+        if (!m.find()) {
+            throw new IOException("cannot decode Content-Range header: " + contentRange);
+        }
+        return Long.parseLong(m.group(1));
     }
 
     public HttpResponse<String> downloadAsString(URI uri, String ... headers) throws IOException, InterruptedException {
         boolean moved = false;
         int availableHops = MAX_HOPS;
 
-        HttpClient httpClient = HttpClient.newBuilder()
-            .followRedirects(HttpClient.Redirect.NEVER)
-            .build();
-
         URI currentUri = uri;
         HttpResponse<String> httpResponse = null;
         do {
@@ -134,7 +324,10 @@ public class DownloadUtil {
                 .newBuilder(currentUri)
                 .headers(headers)
                 .build();
-            httpResponse = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
+            try (HostPolitenessScheduler.Session session = hostPoliteness.openSession()) {
+                session.acquire(currentUri);
+                httpResponse = downloadClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
+            }
             int httpStatus = httpResponse.statusCode();
             int httpStatusClass = httpStatus / 100;
             moved = httpStatusClass == 3;
@@ -145,6 +338,7 @@ public class DownloadUtil {
 
                 availableHops--;
             } else if (httpStatusClass == 4 || httpStatusClass == 5) {
+                backOffIfAsked(currentUri, httpResponse);
                 throw new IOException("http error " + httpResponse.statusCode() + " returned by url " + uri.toString());
             }
         } while (availableHops > 0 && moved);
@@ -156,6 +350,21 @@ public class DownloadUtil {
         return httpResponse;
     }
 
+    /**
+     * on 429 and 503 responses, respect the Retry-After delay for the next requests to the host
+     */
+    private void backOffIfAsked(URI uri, HttpResponse<?> httpResponse) {
+        int httpStatus = httpResponse.statusCode();
+        if (httpStatus != HTTP_TOO_MANY_REQUESTS && httpStatus != HTTP_SERVICE_UNAVAILABLE) {
+            return;
+        }
+
+        Optional<String> retryAfter = httpResponse.headers().firstValue("Retry-After");
+        if (retryAfter.isPresent()) {
+            hostPoliteness.backOff(uri, retryAfter.get());
+        }
+    }
+
     private static URI followRedirect(HttpHeaders httpHeaders) throws IOException {
         Optional<String> locationHeader = httpHeaders.firstValue("Location");
         if (!locationHeader.isPresent()) {
@@ -187,21 +396,106 @@ public class DownloadUtil {
         return builder.build().toUri();
     }
 
-    public JsonNode getJsonNodeFromURI(URI uri) throws IOException {
-        RestTemplate restTemplate = new RestTemplate();
+    /**
+     * get the response of an external service for a doi, from the cache if available,
+     * otherwise waiting for the service
+     */
+    public JsonNode getExternalServiceMetadata(ExternalServiceUriResolver uriResolver, String doi) throws IOException {
         try {
-            ResponseEntity<String> result = restTemplate.getForEntity(uri, String.class);
+            return requestExternalServiceMetadata(uriResolver, doi).get();
+        } catch (ExecutionException e) {
+            throw getJsonServiceFailure(uriResolver.resolve(doi), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for " + uriResolver.getServiceName() + " for doi " + doi);
+        }
+    }
+
+    /**
+     * get the response of an external service for a doi, from the cache if available,
+     * otherwise without waiting for the service; the responses received are cached.
+     * A request already in progress for the same service and doi is shared
+     */
+    public CompletableFuture<JsonNode> requestExternalServiceMetadata(ExternalServiceUriResolver uriResolver, String doi) {
+        String serviceName = uriResolver.getServiceName();
+
+        JsonNode cached = externalMetadataCache.get(serviceName, doi);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        String key = serviceName + " " + doi;
+        CompletableFuture<JsonNode> request = new CompletableFuture<>();
+        CompletableFuture<JsonNode> pending = pendingExternalServiceRequests.putIfAbsent(key, request);
+        if (pending != null) {
+            return pending;
+        }
+
+        getJsonNodeFromURIAsync(uriResolver.resolve(doi), uriResolver.getTimeout())
+            .thenApply(response -> {
+                externalMetadataCache.put(serviceName, doi, response);
+                return response;
+            })
+            .whenComplete((response, failure) -> {
+                pendingExternalServiceRequests.remove(key, request);
+                if (failure != null) {
+                    request.completeExceptionally(failure);
+                } else {
+                    request.complete(response);
+                }
+            });
+        return request;
+    }
+
+    /**
+     * send the request without waiting for the response
+     * @param timeout maximum time for the whole response, after which the request fails with HttpTimeoutException
+     */
+    public CompletableFuture<JsonNode> getJsonNodeFromURIAsync(URI uri, Duration timeout) {
+        HttpRequest httpRequest = HttpRequest
+            .newBuilder(uri)
+            .header("Accept", "application/json")
+            .timeout(timeout)
+            .build();
+
+        return jsonServiceClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofString())
+            .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+            .thenApply(httpResponse -> {
+                if (httpResponse.statusCode() / 100 != 2) {
+                    throw new UncheckedIOException(
+                        new IOException("http error " + httpResponse.statusCode() + " returned by json service at " + uri));
+                }
+                try {
+                    return objectMapper.readTree(httpResponse.body());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+    }
 
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.readTree(result.getBody());
-        } catch (RestClientException e) {
-            throw new IOException("cannot contact json service at " + uri, e);
+    /**
+     * @param failure the exception completing a getJsonNodeFromURIAsync() request
+     */
+    public static IOException getJsonServiceFailure(URI uri, Throwable failure) {
+        if (failure instanceof CompletionException && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        if (failure instanceof UncheckedIOException) {
+            return ((UncheckedIOException) failure).getCause();
+        }
+        if (failure instanceof IOException) {
+            return (IOException) failure;
         }
+        if (failure instanceof TimeoutException) {
+            return new HttpTimeoutException("json service at " + uri + " timed out");
+        }
+        return new IOException("cannot contact json service at " + uri, failure);
     }
 
     public interface ExternalServiceUriResolver {
         public URI resolve(String doi);
         public String getServiceName();
+        public Duration getTimeout();
     }
 
     public class ExternalServiceUriResolverUnpaywall implements ExternalServiceUriResolver {
@@ -214,6 +508,10 @@ public class DownloadUtil {
         public String getServiceName() {
             return SERVICE_NAME;
         }
+
+        public Duration getTimeout() {
+            return Duration.ofSeconds(config.getUnpaywallServiceTimeout());
+        }
     }
 
     public class ExternalServiceUriResolverCrossRef implements ExternalServiceUriResolver {
@@ -226,6 +524,10 @@ public class DownloadUtil {
         public String getServiceName() {
             return SERVICE_NAME;
         }
+
+        public Duration getTimeout() {
+            return Duration.ofSeconds(config.getCrossRefServiceTimeout());
+        }
     }
 
     public class ExternalServiceUriResolverOpenCitations implements ExternalServiceUriResolver {
@@ -238,5 +540,9 @@ public class DownloadUtil {
         public String getServiceName() {
             return SERVICE_NAME;
         }
+
+        public Duration getTimeout() {
+            return Duration.ofSeconds(config.getOpenCitationsServiceTimeout());
+        }
     }
 }
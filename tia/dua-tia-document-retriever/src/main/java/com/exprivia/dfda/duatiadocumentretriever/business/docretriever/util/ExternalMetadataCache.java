@@ -0,0 +1,120 @@
+package com.exprivia.dfda.duatiadocumentretriever.business.docretriever.util;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * responses of the external metadata services, shared by all the retrievers.
+ *
+ * The same DOI is downloaded once per search group and mission, while its
+ * metadata do not depend on them: the responses are kept compressed in redis,
+ * each one for ttl-hours, and the oldest ones are evicted above max-entries.
+ */
+@Component
+@Slf4j
+public class ExternalMetadataCache {
+    private static final String KEY_PREFIX = "external-metadata-";
+    private static final String INDEX_KEY = "external-metadata-index";
+
+    @Value("${dua.tia.documentretriever.external-metadata.cache.enabled}")
+    private boolean enabled;
+
+    @Value("${dua.tia.documentretriever.external-metadata.cache.ttl-hours}")
+    private int ttlHours;
+
+    @Value("${dua.tia.documentretriever.external-metadata.cache.max-entries}")
+    private long maxEntries;
+
+    @Value("${dua.tia.documentretriever.external-metadata.cache.max-entry-size-kb}")
+    private int maxEntrySize;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private DataUtil dataUtil;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * @return the cached response, null if missing or expired
+     */
+    public JsonNode get(String serviceName, String doi) {
+        if (!enabled) {
+            return null;
+        }
+
+        String key = getKey(serviceName, doi);
+        try {
+            String value = redisTemplate.opsForValue().get(key);
+            if (value == null) {
+                return null;
+            }
+
+            log.debug("{} for doi {} found in cache", serviceName, doi);
+            return objectMapper.readTree(dataUtil.decompress(value));
+        } catch (IOException | RuntimeException e) {
+            log.warn("cannot read cached {} for doi {}: {}", serviceName, doi, e.getMessage());
+            return null;
+        }
+    }
+
+    public void put(String serviceName, String doi, JsonNode response) {
+        if (!enabled) {
+            return;
+        }
+
+        String key = getKey(serviceName, doi);
+        try {
+            String value = dataUtil.compress(objectMapper.writeValueAsString(response));
+            if (value.length() > maxEntrySize * 1024L) {
+                log.debug("{} for doi {} too large to be cached: {} bytes compressed", serviceName, doi, value.length());
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+            Duration ttl = Duration.ofHours(ttlHours);
+
+            redisTemplate.opsForValue().set(key, value, ttl);
+            redisTemplate.opsForZSet().add(INDEX_KEY, key, now);
+
+            evict(now - ttl.toMillis());
+        } catch (IOException | RuntimeException e) {
+            log.warn("cannot cache {} for doi {}: {}", serviceName, doi, e.getMessage());
+        }
+    }
+
+    private void evict(long expiredBefore) {
+        // the expired responses are already gone, only their index entries are left
+        redisTemplate.opsForZSet().removeRangeByScore(INDEX_KEY, 0, expiredBefore);
+
+        Long size = redisTemplate.opsForZSet().zCard(INDEX_KEY);
+        if (size == null || size <= maxEntries) {
+            return;
+        }
+
+        Set<TypedTuple<String>> oldest = redisTemplate.opsForZSet().popMin(INDEX_KEY, size - maxEntries);
+        if (oldest != null && !oldest.isEmpty()) {
+            redisTemplate.delete(oldest.stream().map(TypedTuple::getValue).collect(Collectors.toList()));
+            log.debug("evicted {} cached external metadata", oldest.size());
+        }
+    }
+
+    private static String getKey(String serviceName, String doi) {
+        // dois are case insensitive
+        return KEY_PREFIX + serviceName + "-" + doi.trim().toLowerCase();
+    }
+}
@@ -0,0 +1,163 @@
+package com.exprivia.dfda.duatiadocumentretriever.business.docretriever.util;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.exprivia.dfda.duatiadocumentretriever.DuaTiaDocumentRetrieverConfiguration;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * politeness towards the download hosts, shared by all the download workers:
+ * at most max-connections-per-host requests in progress to the same host,
+ * each one started at least host-delay-ms after the previous one, or after
+ * the time asked by the host with Retry-After
+ */
+@Component
+@Slf4j
+public class HostPolitenessScheduler {
+    private static final String UNKNOWN_HOST = "unknown-host";
+
+    @Autowired
+    private DuaTiaDocumentRetrieverConfiguration config;
+
+    private final LongSupplier clock;
+
+    private final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+
+    public HostPolitenessScheduler() {
+        this.clock = System::currentTimeMillis;
+    }
+
+    HostPolitenessScheduler(DuaTiaDocumentRetrieverConfiguration config, LongSupplier clock) {
+        this.config = config;
+        this.clock = clock;
+    }
+
+    /**
+     * connection slot held by a download, moving from host to host along the redirections
+     */
+    public class Session implements AutoCloseable {
+        private HostState heldState = null;
+
+        /**
+         * release the slot held, if any, then wait for a connection slot of the host
+         * and for its delay since the previous request
+         */
+        public void acquire(URI uri) throws InterruptedException {
+            close();
+
+            String host = getHost(uri);
+            HostState state = getState(host);
+
+            state.connections.acquire();
+            heldState = state;
+
+            long wait = state.reserveStart(clock.getAsLong(), Math.max(0, config.getHostDelay()));
+            if (wait > 0) {
+                log.debug("waiting {} ms before the next request to {}", wait, host);
+                Thread.sleep(wait);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (heldState != null) {
+                heldState.connections.release();
+                heldState = null;
+            }
+        }
+    }
+
+    public Session openSession() {
+        return new Session();
+    }
+
+    /**
+     * postpone the next requests to the host, e.g. on 429 or 503 responses
+     */
+    public void backOff(URI uri, Duration delay) {
+        String host = getHost(uri);
+        log.warn("host {} asked to wait {} seconds", host, delay.toSeconds());
+        getState(host).postpone(clock.getAsLong(), delay.toMillis());
+    }
+
+    /**
+     * postpone the next requests to the host by the Retry-After header value,
+     * either delay seconds or http date
+     */
+    public void backOff(URI uri, String retryAfter) {
+        Duration delay = parseRetryAfter(retryAfter);
+        if (delay != null) {
+            backOff(uri, delay);
+        }
+    }
+
+    /**
+     * @return milliseconds before a new request to the host can start, 0 if it can start now
+     */
+    public long getRemainingDelay(String host) {
+        HostState state = hosts.get(host);
+        return state != null ? state.getRemainingDelay(clock.getAsLong()) : 0;
+    }
+
+    Duration parseRetryAfter(String value) {
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                Duration delay = Duration.between(Instant.ofEpochMilli(clock.getAsLong()), date.toInstant());
+                return delay.isNegative() ? Duration.ZERO : delay;
+            } catch (DateTimeParseException e2) {
+                log.debug("cannot decode Retry-After header: {}", value);
+                return null;
+            }
+        }
+    }
+
+    private HostState getState(String host) {
+        return hosts.computeIfAbsent(host, h -> new HostState(Math.max(1, config.getMaxConnectionsPerHost())));
+    }
+
+    private static String getHost(URI uri) {
+        return uri.getHost() != null ? uri.getHost().toLowerCase() : UNKNOWN_HOST;
+    }
+
+    private static class HostState {
+        private final Semaphore connections;
+        private long nextStart = 0;
+
+        HostState(int maxConnections) {
+            this.connections = new Semaphore(maxConnections, true);
+        }
+
+        /**
+         * @return milliseconds to wait before starting the request
+         */
+        synchronized long reserveStart(long now, long delay) {
+            long start = Math.max(now, nextStart);
+            nextStart = start + delay;
+            return start - now;
+        }
+
+        synchronized void postpone(long now, long delay) {
+            nextStart = Math.max(nextStart, now + delay);
+        }
+
+        synchronized long getRemainingDelay(long now) {
+            return Math.max(0, nextStart - now);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.time.Instant;
 
 import org.springframework.data.annotation.Id;
 import org.springframework.data.redis.core.RedisHash;
+import org.springframework.data.redis.core.index.Indexed;
 
 import lombok.Data;
 import lombok.NonNull;
@@ -22,6 +23,26 @@ public class DocumentStatus {
 
     private int retryCount = 0;
 
+    public enum State {
+        COMPLETED,
+        RETRYING,
+        FAILED
+    }
+
+    // derived from completed and retryCount when saved, indexed to find the documents by state
+    @Indexed
+    private State state;
+
+    // the id parts, indexed to find the documents of a search group, repository or mission
+    @Indexed
+    private String group;
+
+    @Indexed
+    private String repository;
+
+    @Indexed
+    private String mission;
+
     static public String getId(String group, String repo, String mission, String docId) {
         return (group + "-" + repo + "-" + mission + "-" + docId).replace('/', '-');
     }
@@ -39,13 +60,27 @@ public class DocumentStatus {
         this(
             getId(group, repo, mission, docId), 
             downloadTimestamp);
+        this.group = group;
+        this.repository = repo;
+        this.mission = mission;
     }
 
     public DocumentStatus(String group, String repo, String mission, String docId, Instant downloadTimestamp, boolean completed, int retryCount) {
-        this(
-            getId(group, repo, mission, docId), 
-            downloadTimestamp);
+        this(group, repo, mission, docId, downloadTimestamp);
         this.completed = completed;
         this.retryCount = retryCount;
     }
+
+    /**
+     * set the state from the completed flag and the retries left
+     */
+    public void updateState() {
+        if (completed) {
+            state = State.COMPLETED;
+        } else if (retryCount > 0) {
+            state = State.RETRYING;
+        } else {
+            state = State.FAILED;
+        }
+    }
 }
@@ -1,8 +1,19 @@
 package com.exprivia.dfda.tia.service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ListOperations;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
 
 import com.exprivia.dfda.tia.model.DocumentCommonAttributes;
@@ -16,27 +27,131 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class DocumentQueueService {
     private static final String DOCUMENT_QUEUE_NAME = "docs";
+    private static final String DOCUMENT_LIST_QUEUE_NAME = "docs-list";
+    private static final String DOCUMENT_IN_FLIGHT_NAME = "docs-in-flight";
+    private static final String DOCUMENT_IN_FLIGHT_DEADLINES_NAME = "docs-in-flight-deadlines";
+    private static final String DOCUMENT_IN_FLIGHT_COUNTER_NAME = "docs-in-flight-counter";
+
+    // the pop is polled in RELIABLE mode, since a script cannot block
+    private static final long MIN_POLL_MILLIS = 100;
+    private static final long MAX_POLL_MILLIS = 1000;
+
+    // thread safe, shared by all the calls
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // pop an event and register it as in flight with a unique id and its deadline,
+    // so that no event can be in flight without a deadline
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> POP_SCRIPT = new DefaultRedisScript<>(
+        "local payload = redis.call('RPOP', KEYS[1]) " +
+        "if not payload then return nil end " +
+        "local id = tostring(redis.call('INCR', KEYS[4])) " +
+        "redis.call('HSET', KEYS[2], id, payload) " +
+        "redis.call('ZADD', KEYS[3], ARGV[1], id) " +
+        "return { id, payload }",
+        List.class);
+
+    // drop the event from the in-flight structures and, when requested,
+    // put it back at the consumer end of the queue; nothing is queued
+    // when the event has already been released by someone else
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+        "local payload = redis.call('HGET', KEYS[1], ARGV[1]) " +
+        "redis.call('ZREM', KEYS[2], ARGV[1]) " +
+        "if not payload then return 0 end " +
+        "redis.call('HDEL', KEYS[1], ARGV[1]) " +
+        "if ARGV[2] == '1' then redis.call('RPUSH', KEYS[3], payload) end " +
+        "return 1",
+        Long.class);
 
     @Autowired
     private RedisTemplate<String, String> redisTemplate;
 
-    public void pushDocumentEvent(DocumentCommonAttributes doc) throws DocumentQueueException {
-        SetOperations<String, String> setOps = redisTemplate.opsForSet();
-        ObjectMapper mapper = new ObjectMapper();
+    @Value("${dua.tia.queue.mode}")
+    private QueueMode queueMode;
 
+    @Value("${dua.tia.queue.blocking-pop-timeout-sec}")
+    private int blockingPopTimeout;
+
+    @Value("${dua.tia.queue.visibility-timeout-sec}")
+    private int visibilityTimeout;
+
+    public void pushDocumentEvent(DocumentCommonAttributes doc) throws DocumentQueueException {
         try {
-            setOps.add(DOCUMENT_QUEUE_NAME, mapper.writeValueAsString(doc));
+            String value = MAPPER.writeValueAsString(doc);
+            if (queueMode != QueueMode.SET) {
+                ListOperations<String, String> listOps = redisTemplate.opsForList();
+                listOps.leftPush(DOCUMENT_LIST_QUEUE_NAME, value);
+            } else {
+                SetOperations<String, String> setOps = redisTemplate.opsForSet();
+                setOps.add(DOCUMENT_QUEUE_NAME, value);
+            }
             log.debug("pushed doc event {}", doc);
         } catch (JsonProcessingException e) {
             throw new DocumentQueueException("cannot push document event", e);
         }
     }
 
-    public DocumentCommonAttributes popDocumentEvent() throws DocumentQueueException {
-        SetOperations<String, String> setOps = redisTemplate.opsForSet();
-        ObjectMapper mapper = new ObjectMapper();
+    /**
+     * push several document events with a single redis command; the documents
+     * that cannot be serialized are skipped and reported, without affecting the others
+     * @return the ids of the documents not pushed
+     */
+    public List<String> pushDocumentEvents(Collection<DocumentCommonAttributes> docs) throws DocumentQueueException {
+        List<String> values = new ArrayList<>(docs.size());
+        List<String> failedIds = new ArrayList<>();
+
+        for (DocumentCommonAttributes doc : docs) {
+            try {
+                values.add(MAPPER.writeValueAsString(doc));
+            } catch (JsonProcessingException e) {
+                log.error("cannot serialize document event " + doc.getId(), e);
+                failedIds.add(doc.getId());
+            }
+        }
+
+        if (values.isEmpty()) {
+            return failedIds;
+        }
+
+        try {
+            if (queueMode != QueueMode.SET) {
+                ListOperations<String, String> listOps = redisTemplate.opsForList();
+                listOps.leftPushAll(DOCUMENT_LIST_QUEUE_NAME, values);
+            } else {
+                SetOperations<String, String> setOps = redisTemplate.opsForSet();
+                setOps.add(DOCUMENT_QUEUE_NAME, values.toArray(new String[0]));
+            }
+        } catch (RuntimeException e) {
+            throw new DocumentQueueException("cannot push " + values.size() + " document events", e);
+        }
+        log.debug("pushed {} doc events", values.size());
+
+        return failedIds;
+    }
 
-        String poppedData = setOps.pop(DOCUMENT_QUEUE_NAME);
+    /**
+     * pop a document event from the queue; in LIST and RELIABLE modes the call waits
+     * up to the configured timeout for an event to be available.
+     * In RELIABLE mode the event is kept in flight until
+     * acknowledgeDocumentEvent() is called
+     * @return the document event or null if no event is available
+     */
+    public DocumentQueueMessage popDocumentEvent() throws DocumentQueueException {
+        String poppedData;
+        String inFlightId = null;
+        if (queueMode == QueueMode.RELIABLE) {
+            List<String> popped = popInFlight();
+            if (popped != null) {
+                inFlightId = popped.get(0);
+            }
+            poppedData = popped != null ? popped.get(1) : null;
+        } else if (queueMode == QueueMode.LIST) {
+            ListOperations<String, String> listOps = redisTemplate.opsForList();
+            poppedData = listOps.rightPop(DOCUMENT_LIST_QUEUE_NAME, Duration.ofSeconds(blockingPopTimeout));
+        } else {
+            SetOperations<String, String> setOps = redisTemplate.opsForSet();
+            poppedData = setOps.pop(DOCUMENT_QUEUE_NAME);
+        }
 
         if (poppedData == null) {
             log.info("no documents events available");
@@ -44,11 +159,122 @@ public class DocumentQueueService {
         }
 
         try {
-            DocumentCommonAttributes doc = mapper.readValue(poppedData, DocumentCommonAttributes.class);
+            DocumentCommonAttributes doc = MAPPER.readValue(poppedData, DocumentCommonAttributes.class);
             log.debug("popped doc event {}", doc);
-            return doc;
+            return new DocumentQueueMessage(inFlightId, poppedData, doc);
         } catch (JsonProcessingException e) {
-            throw new DocumentQueueException("cannot push document event", e);
+            // an event that cannot be decoded would be delivered forever
+            if (inFlightId != null) {
+                release(inFlightId, false);
+            }
+            throw new DocumentQueueException("cannot pop document event", e);
+        }
+    }
+
+    /**
+     * mark the event as processed, so that it is not delivered again
+     */
+    public void acknowledgeDocumentEvent(DocumentQueueMessage message) throws DocumentQueueException {
+        if (queueMode != QueueMode.RELIABLE) {
+            return;
+        }
+
+        release(message.getInFlightId(), false);
+        log.debug("acknowledged doc event {}", message.getDocument().getId());
+    }
+
+    /**
+     * give back a popped event that has not been processed
+     */
+    public void requeueDocumentEvent(DocumentQueueMessage message) throws DocumentQueueException {
+        if (queueMode == QueueMode.RELIABLE) {
+            release(message.getInFlightId(), true);
+            log.debug("requeued doc event {}", message.getDocument().getId());
+        } else {
+            pushDocumentEvent(message.getDocument());
+        }
+    }
+
+    /**
+     * queue again the in-flight events not acknowledged within the visibility timeout,
+     * e.g. because their consumer has been killed
+     * @return the number of requeued events
+     */
+    public int requeueExpiredDocumentEvents() throws DocumentQueueException {
+        if (queueMode != QueueMode.RELIABLE) {
+            return 0;
+        }
+
+        Set<String> expired = redisTemplate.opsForZSet().rangeByScore(
+            DOCUMENT_IN_FLIGHT_DEADLINES_NAME, Double.NEGATIVE_INFINITY, System.currentTimeMillis());
+
+        int requeued = 0;
+        if (expired != null) {
+            for (String inFlightId : expired) {
+                if (release(inFlightId, true)) {
+                    requeued++;
+                }
+            }
+        }
+        if (requeued > 0) {
+            log.warn("requeued {} doc events not acknowledged in {} seconds", requeued, visibilityTimeout);
+        }
+        return requeued;
+    }
+
+    /**
+     * @return true if popDocumentEvent() already waits for new events,
+     * so that the caller does not need to pause between empty pops
+     */
+    public boolean isBlockingPop() {
+        return queueMode != QueueMode.SET;
+    }
+
+    /**
+     * @return the in-flight id and the payload of the popped event, null if none
+     * is available within the blocking pop timeout
+     */
+    @SuppressWarnings("unchecked")
+    private List<String> popInFlight() throws DocumentQueueException {
+        long timeout = System.currentTimeMillis() + blockingPopTimeout * 1000L;
+        long poll = MIN_POLL_MILLIS;
+        try {
+            while (true) {
+                List<String> popped = redisTemplate.execute(POP_SCRIPT,
+                    Arrays.asList(DOCUMENT_LIST_QUEUE_NAME, DOCUMENT_IN_FLIGHT_NAME,
+                        DOCUMENT_IN_FLIGHT_DEADLINES_NAME, DOCUMENT_IN_FLIGHT_COUNTER_NAME),
+                    String.valueOf((long) getDeadline()));
+                if (popped != null && popped.size() == 2) {
+                    return popped;
+                }
+
+                long remaining = timeout - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return null;
+                }
+                Thread.sleep(Math.min(poll, remaining));
+                poll = Math.min(poll * 2, MAX_POLL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (RuntimeException e) {
+            throw new DocumentQueueException("cannot pop in-flight document event", e);
         }
     }
+
+    private boolean release(String inFlightId, boolean requeue) throws DocumentQueueException {
+        try {
+            Long released = redisTemplate.execute(RELEASE_SCRIPT,
+                Arrays.asList(DOCUMENT_IN_FLIGHT_NAME, DOCUMENT_IN_FLIGHT_DEADLINES_NAME, DOCUMENT_LIST_QUEUE_NAME),
+                inFlightId, requeue ? "1" : "0");
+            return released != null && released > 0;
+        } catch (RuntimeException e) {
+            throw new DocumentQueueException("cannot release in-flight document event", e);
+        }
+    }
+
+    private double getDeadline() {
+        return System.currentTimeMillis() + visibilityTimeout * 1000L;
+    }
 }
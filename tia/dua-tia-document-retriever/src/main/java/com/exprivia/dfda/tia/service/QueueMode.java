@@ -0,0 +1,32 @@
+package com.exprivia.dfda.tia.service;
+
+/**
+ * redis data structure backing the event queues
+ */
+public enum QueueMode {
+    /**
+     * redis set, polled with SPOP (duplicated events are merged)
+     */
+    SET,
+
+    /**
+     * redis list, consumed with a blocking pop
+     */
+    LIST,
+
+    /**
+     * redis list, consumed with the POP_SCRIPT lua script of DocumentQueueService:
+     * each popped event is registered in the in-flight hash with a unique id and
+     * in the deadline sorted set with its visibility deadline, then removed from
+     * both when acknowledged. There is no processing list and the script cannot
+     * block, so an empty queue is polled every 100 ms, backing off up to 1 s,
+     * until the blocking pop timeout.
+     *
+     * The visibility timeout starts when the event is popped and is never
+     * extended, including the time spent waiting in the deferred documents of
+     * the DocumentRetrieverWorkerPool: an event processed or deferred for longer
+     * than visibility-timeout-sec is queued again and delivered a second time
+     * while the first copy is still running.
+     */
+    RELIABLE
+}
@@ -0,0 +1,93 @@
+package com.exprivia.dfda.duatiadocumentretriever.business;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+import com.exprivia.dfda.tia.model.DocumentStatus;
+
+class DocumentStatusQueryTest {
+	private static final Instant DOWNLOADED = Instant.parse("2025-03-10T12:00:00Z");
+
+	private final DocumentStatusQuery query = new DocumentStatusQuery();
+
+	private static DocumentStatus status(String group, String repository, String mission, Instant downloadTimestamp, boolean completed, int retryCount) {
+		DocumentStatus status = new DocumentStatus(group, repository, mission, "10.1000/1", downloadTimestamp, completed, retryCount);
+		status.updateState();
+		return status;
+	}
+
+	private static DocumentStatus completed() {
+		return status("group", "crossref", "mission", DOWNLOADED, true, 0);
+	}
+
+	@Test
+	void emptyQueryMatchesAll() {
+		assertTrue(query.matches(completed()));
+		assertTrue(query.matches(status("other", "scopus", "other-mission", null, false, 0)));
+	}
+
+	@Test
+	void anyOfTheStates() {
+		query.getStates().add(DocumentStatus.State.RETRYING);
+		query.getStates().add(DocumentStatus.State.FAILED);
+
+		assertFalse(query.matches(completed()));
+		assertTrue(query.matches(status("group", "crossref", "mission", DOWNLOADED, false, 1)));
+		assertTrue(query.matches(status("group", "crossref", "mission", DOWNLOADED, false, 0)));
+	}
+
+	@Test
+	void idParts() {
+		query.setGroup("group");
+		query.setRepository("crossref");
+		query.setMission("mission");
+
+		assertTrue(query.matches(completed()));
+		assertFalse(query.matches(status("other", "crossref", "mission", DOWNLOADED, true, 0)));
+		assertFalse(query.matches(status("group", "scopus", "mission", DOWNLOADED, true, 0)));
+		assertFalse(query.matches(status("group", "crossref", "other-mission", DOWNLOADED, true, 0)));
+		assertFalse(query.matches(status(null, null, null, DOWNLOADED, true, 0)));
+	}
+
+	@Test
+	void fromIsInclusiveAndToExclusive() {
+		query.setFrom(DOWNLOADED);
+		query.setTo(DOWNLOADED.plusSeconds(1));
+		assertTrue(query.matches(completed()));
+
+		query.setFrom(DOWNLOADED.plusMillis(1));
+		assertFalse(query.matches(completed()));
+
+		query.setFrom(null);
+		query.setTo(DOWNLOADED);
+		assertFalse(query.matches(completed()));
+	}
+
+	@Test
+	void timeRangeExcludesNeverDownloaded() {
+		DocumentStatus neverDownloaded = status("group", "crossref", "mission", null, false, 3);
+
+		query.setFrom(Instant.EPOCH);
+		assertFalse(query.matches(neverDownloaded));
+
+		query.setFrom(null);
+		query.setTo(DOWNLOADED);
+		assertFalse(query.matches(neverDownloaded));
+	}
+
+	@Test
+	void allCriteriaShallMatch() {
+		query.getStates().add(DocumentStatus.State.COMPLETED);
+		query.setRepository("crossref");
+		query.setFrom(DOWNLOADED.minusSeconds(3600));
+
+		assertTrue(query.matches(completed()));
+		assertFalse(query.matches(status("group", "crossref", "mission", DOWNLOADED, false, 1)));
+		assertFalse(query.matches(status("group", "scopus", "mission", DOWNLOADED, true, 0)));
+		assertFalse(query.matches(status("group", "crossref", "mission", DOWNLOADED.minusSeconds(7200), true, 0)));
+	}
+}
@@ -0,0 +1,327 @@
+package com.exprivia.dfda.duatiadocumentretriever.business.docretriever.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.exprivia.dfda.duatiadocumentretriever.DuaTiaDocumentRetrieverConfiguration;
+import com.exprivia.dfda.duatiadocumentretriever.business.docretriever.store.DocumentBlobStore;
+import com.exprivia.dfda.duatiadocumentretriever.business.docretriever.store.DownloadValidatorStore;
+import com.exprivia.dfda.duatiadocumentretriever.business.docretriever.store.DownloadValidators;
+
+/**
+ * resume and conditional requests of DownloadUtil, against a local http server
+ */
+class DownloadUtilTest {
+	private static final String ETAG = "\"v1\"";
+	private static final String PATH = "/files/document.pdf";
+
+	@TempDir
+	private Path tempDir;
+
+	private ServerSocket server;
+	private URI uri;
+	private String localPath;
+
+	private final DocumentBlobStore documentBlobStore = mock(DocumentBlobStore.class);
+	private final DownloadValidatorStore downloadValidatorStore = mock(DownloadValidatorStore.class);
+	private final Map<URI, DownloadValidators> validators = new HashMap<>();
+	private final DownloadUtil downloadUtil = new DownloadUtil();
+
+	// served contents and behaviour, changed by the tests
+	private volatile byte[] contents = contents(100_000);
+	private volatile String etag = ETAG;
+	private volatile int truncateAt = -1;
+	private final List<Map<String, String>> requests = Collections.synchronizedList(new ArrayList<>());
+
+	private static byte[] contents(int length) {
+		byte[] contents = new byte[length];
+		for (int i = 0; i < length; i++) {
+			contents[i] = (byte) (i * 31 + i / 251);
+		}
+		return contents;
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+		server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		Thread serverThread = new Thread(this::serve, "test-http-server");
+		serverThread.setDaemon(true);
+		serverThread.start();
+		uri = URI.create("http://localhost:" + server.getLocalPort() + PATH);
+
+		localPath = tempDir.resolve("document").toString();
+		new File(localPath).mkdirs();
+
+		DuaTiaDocumentRetrieverConfiguration config = new DuaTiaDocumentRetrieverConfiguration();
+		config.setPartialDownloadPath(tempDir.resolve("partial").toString());
+		config.setDownloadConnectTimeout(5);
+		config.setExternalServiceConnectTimeout(5);
+		config.setMaxConnectionsPerHost(1);
+		config.setHostDelay(0);
+
+		when(documentBlobStore.createDigest()).thenAnswer(invocation -> MessageDigest.getInstance("SHA-256"));
+		when(downloadValidatorStore.get(any())).thenAnswer(invocation -> validators.get(invocation.getArgument(0)));
+		doAnswer(invocation -> validators.put(invocation.getArgument(0), invocation.getArgument(1)))
+			.when(downloadValidatorStore).put(any(), any());
+
+		ReflectionTestUtils.setField(downloadUtil, "config", config);
+		ReflectionTestUtils.setField(downloadUtil, "documentBlobStore", documentBlobStore);
+		ReflectionTestUtils.setField(downloadUtil, "downloadValidatorStore", downloadValidatorStore);
+		ReflectionTestUtils.setField(downloadUtil, "hostPoliteness", new HostPolitenessScheduler(config, System::currentTimeMillis));
+		downloadUtil.initialize();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		server.close();
+	}
+
+	/**
+	 * serve the requests one per connection, so that a response can be cut short by closing it
+	 */
+	private void serve() {
+		while (!server.isClosed()) {
+			try (Socket socket = server.accept()) {
+				handle(socket);
+			} catch (IOException e) {
+				// server closed or client gone
+			}
+		}
+	}
+
+	private void handle(Socket socket) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+		reader.readLine();
+		Map<String, String> requestHeaders = new HashMap<>();
+		for (String line = reader.readLine(); line != null && !line.isEmpty(); line = reader.readLine()) {
+			int colon = line.indexOf(':');
+			requestHeaders.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+		}
+		requests.add(requestHeaders);
+
+		StringBuilder head = new StringBuilder();
+		int start = 0;
+		int end = contents.length;
+		String range = requestHeaders.get("range");
+		if (etag != null && etag.equals(requestHeaders.get("if-none-match"))) {
+			head.append("HTTP/1.1 304 Not Modified\r\n");
+			end = 0;
+		} else if (range != null && (etag == null || etag.equals(requestHeaders.get("if-range")))) {
+			start = Integer.parseInt(range.replaceAll("bytes=(\\d+)-", "$1"));
+			if (start >= contents.length) {
+				head.append("HTTP/1.1 416 Range Not Satisfiable\r\n");
+				start = end = 0;
+			} else {
+				head.append("HTTP/1.1 206 Partial Content\r\n");
+				head.append("Content-Range: bytes " + start + "-" + (contents.length - 1) + "/" + contents.length + "\r\n");
+			}
+		} else {
+			head.append("HTTP/1.1 200 OK\r\n");
+		}
+		head.append("Content-Type: application/pdf\r\n");
+		if (etag != null) {
+			head.append("ETag: " + etag + "\r\n");
+		}
+		head.append("Content-Length: " + (end - start) + "\r\n");
+		head.append("Connection: close\r\n\r\n");
+
+		OutputStream out = socket.getOutputStream();
+		out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+		if (truncateAt >= 0) {
+			// connection lost before the declared length
+			end = Math.min(end, truncateAt);
+			truncateAt = -1;
+		}
+		out.write(contents, start, end - start);
+		out.flush();
+	}
+
+	private String download() throws IOException, InterruptedException {
+		return downloadUtil.downloadFile(uri, localPath, downloadUtil.defaultHeaders());
+	}
+
+	private Path partFile() throws IOException {
+		try (var files = Files.list(tempDir.resolve("partial"))) {
+			return files.findFirst().orElse(null);
+		}
+	}
+
+	private static byte[] sha256(byte[] contents) throws Exception {
+		return MessageDigest.getInstance("SHA-256").digest(contents);
+	}
+
+	@Test
+	void completeDownload() throws Exception {
+		String localFile = download();
+
+		assertEquals(new File(localPath, "document.pdf").getPath(), localFile);
+		assertArrayEquals(contents, Files.readAllBytes(Path.of(localFile)));
+		assertNull(partFile());
+
+		assertEquals(new DownloadValidators(ETAG, null, "document.pdf"), validators.get(uri));
+		verify(documentBlobStore).add(uri, localFile, sha256(contents));
+	}
+
+	@Test
+	void interruptedDownloadIsResumed() throws Exception {
+		truncateAt = 40_000;
+		assertThrows(IOException.class, () -> download());
+
+		Path partFile = partFile();
+		assertEquals(40_000, Files.size(partFile));
+
+		String localFile = download();
+
+		Map<String, String> resumeRequest = requests.get(1);
+		assertEquals("bytes=40000-", resumeRequest.get("range"));
+		assertEquals(ETAG, resumeRequest.get("if-range"));
+
+		assertArrayEquals(contents, Files.readAllBytes(Path.of(localFile)));
+		assertFalse(Files.exists(partFile));
+
+		// the digest covers the bytes received before the interruption
+		verify(documentBlobStore).add(uri, localFile, sha256(contents));
+	}
+
+	@Test
+	void changedContentsAreDownloadedAgainFromTheStart() throws Exception {
+		truncateAt = 40_000;
+		assertThrows(IOException.class, () -> download());
+
+		contents = contents(30_000);
+		etag = "\"v2\"";
+		String localFile = download();
+
+		// the If-Range validator does not match, the server sends the whole new contents
+		assertEquals("bytes=40000-", requests.get(1).get("range"));
+		assertArrayEquals(contents, Files.readAllBytes(Path.of(localFile)));
+		assertEquals("\"v2\"", validators.get(uri).getEtag());
+		verify(documentBlobStore).add(uri, localFile, sha256(contents));
+	}
+
+	@Test
+	void unsatisfiableRangeRestartsFromScratch() throws Exception {
+		truncateAt = 40_000;
+		assertThrows(IOException.class, () -> download());
+
+		// contents shortened with the same validator
+		contents = contents(20_000);
+		assertThrows(IOException.class, () -> download());
+		assertNull(partFile());
+
+		String localFile = download();
+		assertNull(requests.get(2).get("range"));
+		assertArrayEquals(contents, Files.readAllBytes(Path.of(localFile)));
+	}
+
+	@Test
+	void interruptedDownloadWithoutValidatorsIsNotKept() throws Exception {
+		etag = null;
+		truncateAt = 40_000;
+		assertThrows(IOException.class, () -> download());
+		assertNull(partFile());
+
+		String localFile = download();
+		assertNull(requests.get(1).get("range"));
+		assertArrayEquals(contents, Files.readAllBytes(Path.of(localFile)));
+	}
+
+	@Test
+	void unchangedFileIsNotDownloadedAgain() throws Exception {
+		String localFile = download();
+		long modified = new File(localFile).lastModified();
+
+		assertEquals(localFile, download());
+
+		assertEquals(ETAG, requests.get(1).get("if-none-match"));
+		assertArrayEquals(contents, Files.readAllBytes(Path.of(localFile)));
+		assertEquals(modified, new File(localFile).lastModified());
+		// stored once, by the first download
+		verify(documentBlobStore).add(any(), anyString(), any());
+	}
+
+	@Test
+	void changedFileIsReplaced() throws Exception {
+		String localFile = download();
+
+		contents = contents(50_000);
+		etag = "\"v2\"";
+		assertEquals(localFile, download());
+
+		assertEquals(ETAG, requests.get(1).get("if-none-match"));
+		assertArrayEquals(contents, Files.readAllBytes(Path.of(localFile)));
+		assertEquals("\"v2\"", validators.get(uri).getEtag());
+	}
+
+	@Test
+	void deletedFileIsRequestedUnconditionally() throws Exception {
+		String localFile = download();
+		Files.delete(Path.of(localFile));
+
+		download();
+
+		assertNull(requests.get(1).get("if-none-match"));
+		assertArrayEquals(contents, Files.readAllBytes(Path.of(localFile)));
+	}
+
+	@Test
+	void storedUrlWithoutValidatorsIsLinked() throws Exception {
+		DocumentBlobStore.StoredUrl storedUrl = mock(DocumentBlobStore.StoredUrl.class);
+		when(documentBlobStore.getStoredUrl(uri)).thenReturn(storedUrl);
+		when(documentBlobStore.link(storedUrl, localPath)).thenReturn("linked.pdf");
+
+		assertEquals("linked.pdf", download());
+
+		assertEquals(0, requests.size());
+		verify(documentBlobStore, never()).add(any(), anyString(), any());
+	}
+
+	@Test
+	void storedUrlIsLinkedWhenNotModified() throws Exception {
+		DocumentBlobStore.StoredUrl storedUrl = mock(DocumentBlobStore.StoredUrl.class);
+		when(documentBlobStore.getStoredUrl(uri)).thenReturn(storedUrl);
+		when(documentBlobStore.link(storedUrl, localPath)).thenReturn("linked.pdf");
+		validators.put(uri, new DownloadValidators(ETAG, null, "document.pdf"));
+
+		// the document directory has no copy, the stored one is checked
+		assertEquals("linked.pdf", download());
+
+		assertEquals(ETAG, requests.get(0).get("if-none-match"));
+		verify(documentBlobStore, never()).add(any(), anyString(), any());
+	}
+}
@@ -0,0 +1,144 @@
+package com.exprivia.dfda.duatiadocumentretriever.business.docretriever.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.exprivia.dfda.duatiadocumentretriever.DuaTiaDocumentRetrieverConfiguration;
+
+class HostPolitenessSchedulerTest {
+	private static final URI HOST_A = URI.create("https://a.example.org/doc.pdf");
+	private static final URI HOST_B = URI.create("https://b.example.org/doc.pdf");
+
+	private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+	private HostPolitenessScheduler createScheduler(int maxConnectionsPerHost, long hostDelay) {
+		DuaTiaDocumentRetrieverConfiguration config = new DuaTiaDocumentRetrieverConfiguration();
+		config.setMaxConnectionsPerHost(maxConnectionsPerHost);
+		config.setHostDelay(hostDelay);
+		return new HostPolitenessScheduler(config, clock::get);
+	}
+
+	private static String httpDate(long epochMillis) {
+		return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(epochMillis).atOffset(ZoneOffset.UTC));
+	}
+
+	@Test
+	void requestsToTheSameHostAreSpacedByTheDelay() throws InterruptedException {
+		HostPolitenessScheduler scheduler = createScheduler(2, 500);
+
+		try (HostPolitenessScheduler.Session session = scheduler.openSession()) {
+			session.acquire(HOST_A);
+		}
+		assertEquals(500, scheduler.getRemainingDelay("a.example.org"));
+		assertEquals(0, scheduler.getRemainingDelay("b.example.org"));
+
+		clock.addAndGet(200);
+		assertEquals(300, scheduler.getRemainingDelay("a.example.org"));
+
+		clock.addAndGet(300);
+		assertEquals(0, scheduler.getRemainingDelay("a.example.org"));
+	}
+
+	@Test
+	void hostNamesAreCaseInsensitive() throws InterruptedException {
+		HostPolitenessScheduler scheduler = createScheduler(1, 500);
+
+		try (HostPolitenessScheduler.Session session = scheduler.openSession()) {
+			session.acquire(URI.create("https://A.Example.ORG/doc.pdf"));
+		}
+		assertEquals(500, scheduler.getRemainingDelay("a.example.org"));
+	}
+
+	@Test
+	void connectionsPerHostAreLimited() throws InterruptedException {
+		HostPolitenessScheduler scheduler = createScheduler(1, 0);
+		CountDownLatch acquired = new CountDownLatch(1);
+
+		try (HostPolitenessScheduler.Session session = scheduler.openSession()) {
+			session.acquire(HOST_A);
+
+			Thread other = new Thread(() -> {
+				try (HostPolitenessScheduler.Session otherSession = scheduler.openSession()) {
+					otherSession.acquire(HOST_A);
+					acquired.countDown();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			other.start();
+
+			assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+			session.close();
+			assertTrue(acquired.await(5, TimeUnit.SECONDS));
+			other.join();
+		}
+	}
+
+	@Test
+	void redirectionReleasesThePreviousHost() throws InterruptedException {
+		HostPolitenessScheduler scheduler = createScheduler(1, 0);
+
+		try (HostPolitenessScheduler.Session session = scheduler.openSession();
+			HostPolitenessScheduler.Session other = scheduler.openSession()) {
+			session.acquire(HOST_A);
+			session.acquire(HOST_B);
+
+			// would block if the slot of the first host was still held
+			other.acquire(HOST_A);
+		}
+	}
+
+	@Test
+	void backOffPostponesTheHostOnly() {
+		HostPolitenessScheduler scheduler = createScheduler(1, 0);
+
+		scheduler.backOff(HOST_A, Duration.ofSeconds(30));
+		assertEquals(30_000, scheduler.getRemainingDelay("a.example.org"));
+		assertEquals(0, scheduler.getRemainingDelay("b.example.org"));
+
+		// a shorter back off does not shorten the previous one
+		scheduler.backOff(HOST_A, Duration.ofSeconds(5));
+		assertEquals(30_000, scheduler.getRemainingDelay("a.example.org"));
+	}
+
+	@Test
+	void retryAfterDelaySeconds() {
+		HostPolitenessScheduler scheduler = createScheduler(1, 0);
+
+		scheduler.backOff(HOST_A, " 120 ");
+		assertEquals(120_000, scheduler.getRemainingDelay("a.example.org"));
+	}
+
+	@Test
+	void retryAfterHttpDate() {
+		HostPolitenessScheduler scheduler = createScheduler(1, 0);
+
+		scheduler.backOff(HOST_A, httpDate(clock.get() + 90_000));
+		assertEquals(90_000, scheduler.getRemainingDelay("a.example.org"));
+	}
+
+	@Test
+	void retryAfterInThePastOrInvalid() {
+		HostPolitenessScheduler scheduler = createScheduler(1, 0);
+
+		assertEquals(Duration.ZERO, scheduler.parseRetryAfter(httpDate(clock.get() - 90_000)));
+		assertEquals(Duration.ZERO, scheduler.parseRetryAfter("-5"));
+		assertNull(scheduler.parseRetryAfter("tomorrow"));
+
+		scheduler.backOff(HOST_A, "tomorrow");
+		assertEquals(0, scheduler.getRemainingDelay("a.example.org"));
+	}
+}
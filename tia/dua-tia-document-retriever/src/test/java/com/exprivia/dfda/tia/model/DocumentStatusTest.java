@@ -0,0 +1,76 @@
+package com.exprivia.dfda.tia.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+class DocumentStatusTest {
+
+	private static DocumentStatus status(boolean completed, int retryCount) {
+		return new DocumentStatus("group", "crossref", "mission", "10.1000/1", Instant.EPOCH, completed, retryCount);
+	}
+
+	@Test
+	void stateFromCompletedAndRetriesLeft() {
+		DocumentStatus completed = status(true, 0);
+		completed.updateState();
+		assertEquals(DocumentStatus.State.COMPLETED, completed.getState());
+
+		DocumentStatus retrying = status(false, 2);
+		retrying.updateState();
+		assertEquals(DocumentStatus.State.RETRYING, retrying.getState());
+
+		DocumentStatus failed = status(false, 0);
+		failed.updateState();
+		assertEquals(DocumentStatus.State.FAILED, failed.getState());
+	}
+
+	@Test
+	void completedWinsOverRetriesLeft() {
+		DocumentStatus status = status(true, 3);
+		status.updateState();
+		assertEquals(DocumentStatus.State.COMPLETED, status.getState());
+	}
+
+	@Test
+	void negativeRetriesLeftIsFailed() {
+		DocumentStatus status = status(false, -1);
+		status.updateState();
+		assertEquals(DocumentStatus.State.FAILED, status.getState());
+	}
+
+	@Test
+	void stateFollowsTheLatestAttempt() {
+		DocumentStatus status = status(false, 1);
+		assertNull(status.getState());
+
+		status.updateState();
+		assertEquals(DocumentStatus.State.RETRYING, status.getState());
+
+		status.setRetryCount(0);
+		status.updateState();
+		assertEquals(DocumentStatus.State.FAILED, status.getState());
+
+		// retry counter reset by the update mode
+		status.setRetryCount(3);
+		status.updateState();
+		assertEquals(DocumentStatus.State.RETRYING, status.getState());
+
+		status.setCompleted(true);
+		status.updateState();
+		assertEquals(DocumentStatus.State.COMPLETED, status.getState());
+	}
+
+	@Test
+	void idPartsAreKept() {
+		DocumentStatus status = status(false, 1);
+
+		assertEquals("group-crossref-mission-10.1000-1", status.getId());
+		assertEquals("group", status.getGroup());
+		assertEquals("crossref", status.getRepository());
+		assertEquals("mission", status.getMission());
+	}
+}
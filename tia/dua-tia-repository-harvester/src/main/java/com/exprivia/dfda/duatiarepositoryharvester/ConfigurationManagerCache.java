@@ -0,0 +1,116 @@
+package com.exprivia.dfda.duatiarepositoryharvester;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * read-through cache of the configuration manager responses.
+ *
+ * An entry is used as is for ttl milliseconds while the configuration version
+ * does not change, then it is revalidated with its ETag; if the configuration
+ * manager cannot be contacted, the entry keeps being used for up to maxStale
+ * milliseconds more. The least recently used entries are evicted above maxEntries.
+ */
+@Slf4j
+public class ConfigurationManagerCache<V> {
+    private final String name;
+    private final long ttl;
+    private final long maxStale;
+    private final LongSupplier clock;
+    private final Map<String, Entry<V>> entries;
+
+    @FunctionalInterface
+    public interface Loader<V> {
+        /**
+         * @param etag the ETag of the cached value, to be sent as If-None-Match, null if none
+         */
+        ResponseEntity<V> load(String etag) throws RestClientException;
+    }
+
+    public ConfigurationManagerCache(String name, int maxEntries, long ttl, long maxStale) {
+        this(name, maxEntries, ttl, maxStale, System::currentTimeMillis);
+    }
+
+    ConfigurationManagerCache(String name, int maxEntries, long ttl, long maxStale, LongSupplier clock) {
+        this.name = name;
+        this.ttl = ttl;
+        this.maxStale = maxStale;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param version the current configuration version, a cached value of another version is revalidated
+     */
+    public V get(String key, long version, Loader<V> loader) throws RestClientException {
+        Entry<V> entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+
+        long now = clock.getAsLong();
+        if (entry != null && entry.version == version && now - entry.validatedAt < ttl) {
+            return entry.value;
+        }
+
+        ResponseEntity<V> response;
+        try {
+            response = loader.load(entry != null ? entry.etag : null);
+        } catch (HttpClientErrorException e) {
+            // e.g. the entity has been deleted, not an outage
+            synchronized (entries) {
+                entries.remove(key);
+            }
+            throw e;
+        } catch (RestClientException e) {
+            if (entry != null && now - entry.validatedAt < ttl + maxStale) {
+                log.warn("cannot revalidate {} {}, using the cached one: {}", name, key, e.getMessage());
+                return entry.value;
+            }
+            throw e;
+        }
+
+        if (entry != null && HttpStatus.NOT_MODIFIED.equals(response.getStatusCode())) {
+            log.debug("{} {} not modified", name, key);
+            entry = new Entry<>(entry.value, entry.etag, version, now);
+        } else {
+            entry = new Entry<>(response.getBody(), response.getHeaders().getETag(), version, now);
+        }
+
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+        return entry.value;
+    }
+
+    /**
+     * replace a cached value after updating it on the configuration manager
+     */
+    public void put(String key, V value, long version) {
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, null, version, clock.getAsLong()));
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Entry<V> {
+        private final V value;
+        private final String etag;
+        private final long version;
+        private final long validatedAt;
+    }
+}
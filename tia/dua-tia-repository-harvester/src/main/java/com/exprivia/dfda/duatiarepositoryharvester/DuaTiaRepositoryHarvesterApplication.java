@@ -93,7 +93,10 @@ public class DuaTiaRepositoryHarvesterApplication implements CommandLineRunner {
 				DocumentRepository docRepo = repositoryQueueService.popRepositoryEvent();
 
 				if (docRepo == null) {
-					Thread.sleep(10000);
+					// a blocking pop has already waited for new events
+					if (!repositoryQueueService.isBlockingPop()) {
+						Thread.sleep(10000);
+					}
 				} else {
 					harvester.visitRepository(docRepo);
 				}
@@ -113,7 +116,7 @@ public class DuaTiaRepositoryHarvesterApplication implements CommandLineRunner {
 		for (KeywordDictionaryDefinition secondLevelKeyword : dictionary.getDictionaryDefinition().getChildren()) {
 			DocumentRepositoryQuery query = new DocumentRepositoryQuery(
 				secondLevelKeyword, 
-				null, 0, 0);
+				null, 0, 0, null);
 
 			for (String driverName : drivers) {
 				DocumentRepositoryDriverInterface driver = drFactory.factory(driverName);
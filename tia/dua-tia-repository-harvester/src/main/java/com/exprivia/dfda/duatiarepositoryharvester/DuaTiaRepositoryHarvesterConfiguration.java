@@ -10,20 +10,29 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import org.springframework.web.util.UriBuilderFactory;
 
+import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.util.RestUtil;
 import com.exprivia.dfda.tia.model.KeywordDictionary;
 import com.exprivia.dfda.tia.model.QueryMaxPublicationDate;
 import com.exprivia.dfda.tia.model.RepositorySearchBinding;
+import com.exprivia.dfda.tia.service.ConfigurationVersionService;
 import com.fasterxml.jackson.core.StreamReadConstraints;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.annotation.PostConstruct;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -40,6 +49,9 @@ public class DuaTiaRepositoryHarvesterConfiguration {
     @Value("${dua.tia.repositoryharvester.json-response-max-size}")
     private int jsonResponseMaxSize; 
 
+    @Value("${dua.tia.repositoryharvester.mission-parallelism}")
+    private int missionParallelism;
+
     @Value("${dua.tia.repositoryharvester.querymode.output-file}")
     private String queryModeOutputFilename;
 
@@ -58,6 +70,48 @@ public class DuaTiaRepositoryHarvesterConfiguration {
     @Value("${dua.tia.configurationmanager.query-max-publication-date-update.url}")
     private String configurationManagerQueryMaxPublicationDateUpdateUrl;
 
+    @Value("${dua.tia.configurationmanager.read-timeout-sec}")
+    private int configurationManagerReadTimeout;
+
+    @Value("${dua.tia.configurationmanager.cache.ttl-sec}")
+    private int configurationCacheTtl;
+
+    @Value("${dua.tia.configurationmanager.cache.max-stale-sec}")
+    private int configurationCacheMaxStale;
+
+    @Value("${dua.tia.configurationmanager.cache.max-entries}")
+    private int configurationCacheMaxEntries;
+
+    @Autowired
+    private RestUtil restUtil;
+
+    @Autowired
+    private ConfigurationVersionService configurationVersionService;
+
+    private RestTemplate configurationManagerRestTemplate;
+
+    private final UriBuilderFactory uriBuilderFactory = new DefaultUriBuilderFactory();
+
+    /*
+     * responses of the configuration manager, revalidated when a new configuration
+     * version is published or when they get older than the cache ttl
+     */
+    private ConfigurationManagerCache<RepositorySearchBinding[]> repositorySearchBindings;
+    private ConfigurationManagerCache<KeywordDictionary> keywordDictionaries;
+    private ConfigurationManagerCache<String> searchGroupAcronyms;
+    private ConfigurationManagerCache<QueryMaxPublicationDate> queryMaxPublicationDates;
+
+    @PostConstruct
+    public void initializeConfigurationCache() {
+        long ttl = configurationCacheTtl * 1000L;
+        long maxStale = configurationCacheMaxStale * 1000L;
+
+        repositorySearchBindings = new ConfigurationManagerCache<>("repository search bindings", configurationCacheMaxEntries, ttl, maxStale);
+        keywordDictionaries = new ConfigurationManagerCache<>("keyword dictionary", configurationCacheMaxEntries, ttl, maxStale);
+        searchGroupAcronyms = new ConfigurationManagerCache<>("search group acronym", configurationCacheMaxEntries, ttl, maxStale);
+        queryMaxPublicationDates = new ConfigurationManagerCache<>("query max publication date", configurationCacheMaxEntries, ttl, maxStale);
+    }
+
     @Bean
     public ObjectMapper getMapper() {
         log.info("json response max size set to {}", jsonResponseMaxSize);
@@ -72,6 +126,13 @@ public class DuaTiaRepositoryHarvesterConfiguration {
         return objectMapper;
     }
 
+    @Bean
+    public RedisMessageListenerContainer getRedisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
     /*
      * this loads a list of pojo from the application properties
      */
@@ -94,62 +155,81 @@ public class DuaTiaRepositoryHarvesterConfiguration {
         private Integer pageSize;
     }
 
-    public List<RepositorySearchBinding> getRepositorySearchBindingsByRepositoryId(String repoId) {
-        RestTemplate restTemplate = new RestTemplate();
-        Map<String, String> params = new HashMap<>();
-        params.put("repo-id", repoId);
+    private synchronized RestTemplate getConfigurationManagerRestTemplate() {
+        if (configurationManagerRestTemplate == null) {
+            configurationManagerRestTemplate = restUtil.createRestTemplate(configurationManagerReadTimeout);
+        }
+        return configurationManagerRestTemplate;
+    }
+
+    /**
+     * @return the published configuration version, -1 if it cannot be read
+     * so that the cached configuration gets revalidated
+     */
+    private long getConfigurationVersion() {
+        try {
+            return configurationVersionService.getVersion();
+        } catch (RuntimeException e) {
+            log.warn("cannot read configuration version: {}", e.getMessage());
+            return -1;
+        }
+    }
 
-        UriBuilderFactory factory = new DefaultUriBuilderFactory();
+    private URI buildUri(String template, Map<String, String> params) {
         try {
-            URI uri = factory.uriString(configurationManagerRepoSearchBindingUrl).build(params).toURL().toURI();
-            return Arrays.asList(restTemplate.getForObject(uri, RepositorySearchBinding[].class));
+            return uriBuilderFactory.uriString(template).build(params).toURL().toURI();
         } catch (MalformedURLException | URISyntaxException e) {
-            throw new RuntimeException("Bad URL template in configuration " + configurationManagerRepoSearchBindingUrl, e);
+            throw new RuntimeException("Bad URL template in configuration " + template, e);
         }
     }
 
+    private <T> ConfigurationManagerCache.Loader<T> getLoader(URI uri, Class<T> responseType) {
+        return etag -> {
+            HttpHeaders headers = new HttpHeaders();
+            if (etag != null) {
+                headers.setIfNoneMatch(etag);
+            }
+            return getConfigurationManagerRestTemplate().exchange(uri, HttpMethod.GET, new HttpEntity<>(headers), responseType);
+        };
+    }
+
+    public List<RepositorySearchBinding> getRepositorySearchBindingsByRepositoryId(String repoId) {
+        Map<String, String> params = new HashMap<>();
+        params.put("repo-id", repoId);
+
+        URI uri = buildUri(configurationManagerRepoSearchBindingUrl, params);
+        return Arrays.asList(repositorySearchBindings.get(repoId, getConfigurationVersion(), getLoader(uri, RepositorySearchBinding[].class)));
+    }
+
     public KeywordDictionary getKeywordDictionary(String keywordDictionaryId) {
-        RestTemplate restTemplate = new RestTemplate();
         Map<String, String> params = new HashMap<>();
         params.put("kwd-id", keywordDictionaryId);
 
-        UriBuilderFactory factory = new DefaultUriBuilderFactory();
-        try {
-            URI uri = factory.uriString(configurationManagerKeywordDictionaryUrl).build(params).toURL().toURI();
-            return restTemplate.getForObject(uri, KeywordDictionary.class);
-        } catch (MalformedURLException | URISyntaxException e) {
-            throw new RuntimeException("Bad URL template in configuration " + configurationManagerKeywordDictionaryUrl, e);
-        }
+        URI uri = buildUri(configurationManagerKeywordDictionaryUrl, params);
+        return keywordDictionaries.get(keywordDictionaryId, getConfigurationVersion(), getLoader(uri, KeywordDictionary.class));
     }
 
     public String getSearchGroupAcronymByBindingId(String bindingId) {
-        RestTemplate restTemplate = new RestTemplate();
         Map<String, String> params = new HashMap<>();
         params.put("rsbinding-id", bindingId);
 
-        UriBuilderFactory factory = new DefaultUriBuilderFactory();
-        try {
-            URI uri = factory.uriString(configurationManagerGroupAcronymUrl).build(params).toURL().toURI();
-            return restTemplate.getForObject(uri, String.class);
-        } catch (MalformedURLException | URISyntaxException e) {
-            throw new RuntimeException("Bad URL template in configuration " + configurationManagerGroupAcronymUrl, e);
-        }
+        URI uri = buildUri(configurationManagerGroupAcronymUrl, params);
+        return searchGroupAcronyms.get(bindingId, getConfigurationVersion(), getLoader(uri, String.class));
     }
 
+    /*
+     * the checkpoints are written by the harvester itself, so they are not
+     * revalidated on configuration changes; an outdated checkpoint written by
+     * another harvester only widens the next query
+     */
     public QueryMaxPublicationDate getQueryMaxPublicationDate(String repositorySearchBindingId, String repositoryId, String mission) {
-        RestTemplate restTemplate = new RestTemplate();
         Map<String, String> params = new HashMap<>();
         params.put("rsbinding-id", repositorySearchBindingId);
         params.put("repo-id", repositoryId);
         params.put("mission", mission);
 
-        UriBuilderFactory factory = new DefaultUriBuilderFactory();
-        try {
-            URI uri = factory.uriString(configurationManagerQueryMaxPublicationDateUrl).build(params).toURL().toURI();
-            return restTemplate.getForObject(uri, QueryMaxPublicationDate.class);
-        } catch (MalformedURLException | URISyntaxException e) {
-            throw new RuntimeException("Bad URL template in configuration " + configurationManagerQueryMaxPublicationDateUrl, e);
-        }
+        URI uri = buildUri(configurationManagerQueryMaxPublicationDateUrl, params);
+        return queryMaxPublicationDates.get(uri.toString(), 0, getLoader(uri, QueryMaxPublicationDate.class));
     }
 
     public void setQueryMaxPublicationDate(
@@ -158,7 +238,7 @@ public class DuaTiaRepositoryHarvesterConfiguration {
         String mission, 
         Date maxPublicationDate) {
         
-        RestTemplate restTemplate = new RestTemplate();
+        RestTemplate restTemplate = getConfigurationManagerRestTemplate();
 
         URI uri = URI.create(configurationManagerQueryMaxPublicationDateUpdateUrl);
         QueryMaxPublicationDate qmpd = new QueryMaxPublicationDate(
@@ -167,6 +247,12 @@ public class DuaTiaRepositoryHarvesterConfiguration {
             mission,
             maxPublicationDate);
         restTemplate.postForObject(uri, qmpd, QueryMaxPublicationDate.class);
+
+        Map<String, String> params = new HashMap<>();
+        params.put("rsbinding-id", repositorySearchBindingId);
+        params.put("repo-id", repositoryId);
+        params.put("mission", mission);
+        queryMaxPublicationDates.put(buildUri(configurationManagerQueryMaxPublicationDateUrl, params).toString(), qmpd, 0);
     }
 
 }
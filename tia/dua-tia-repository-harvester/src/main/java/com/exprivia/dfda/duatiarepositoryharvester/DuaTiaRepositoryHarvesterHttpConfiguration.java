@@ -0,0 +1,67 @@
+package com.exprivia.dfda.duatiarepositoryharvester;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * http client shared by the repository drivers and the configuration
+ * manager calls, keeping the connections alive between the requests
+ */
+@Configuration
+@Slf4j
+public class DuaTiaRepositoryHarvesterHttpConfiguration {
+    @Value("${dua.tia.repositoryharvester.http.max-connections}")
+    private int maxConnections;
+
+    @Value("${dua.tia.repositoryharvester.http.max-connections-per-host}")
+    private int maxConnectionsPerHost;
+
+    @Value("${dua.tia.repositoryharvester.http.connect-timeout-sec}")
+    private int connectTimeout;
+
+    @Value("${dua.tia.repositoryharvester.http.idle-timeout-sec}")
+    private int idleTimeout;
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager getHttpConnectionManager() {
+        log.info("http connection pool: {} connections, {} per host", maxConnections, maxConnectionsPerHost);
+
+        return PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(maxConnections)
+            .setMaxConnPerRoute(maxConnectionsPerHost)
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofSeconds(connectTimeout))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                .build())
+            .build();
+    }
+
+    /*
+     * the classic client negotiates gzip/deflate content encoding by default
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient getHttpClient(PoolingHttpClientConnectionManager connectionManager) {
+        return HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .evictExpiredConnections()
+            .evictIdleConnections(TimeValue.ofSeconds(idleTimeout))
+            .build();
+    }
+
+    @Bean
+    public MeterBinder getHttpConnectionPoolMetrics(PoolingHttpClientConnectionManager connectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "repository-harvester");
+    }
+}
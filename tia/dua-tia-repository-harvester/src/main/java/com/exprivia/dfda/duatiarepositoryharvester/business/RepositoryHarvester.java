@@ -1,7 +1,15 @@
 package com.exprivia.dfda.duatiarepositoryharvester.business;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatusCode;
@@ -9,6 +17,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
 
 import com.exprivia.dfda.duatiarepositoryharvester.DuaTiaRepositoryHarvesterConfiguration;
+import com.exprivia.dfda.duatiarepositoryharvester.business.dedup.DocumentStatusFilter;
 import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.DocumentRepositoryAccess;
 import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.DocumentRepositoryDriverFactory;
 import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.driver.DocumentRepositoryDriverInterface;
@@ -46,6 +55,9 @@ public class RepositoryHarvester {
     @Autowired
     private DocumentStatusService documentStatusService;
 
+    @Autowired
+    private DocumentStatusFilter documentStatusFilter;
+
     @Autowired
     private DuaTiaRepositoryHarvesterConfiguration configuration;
 
@@ -58,6 +70,8 @@ public class RepositoryHarvester {
 
         log.info("starting repository visit with \"{}\"", docRepo.getName());
 
+        documentStatusFilter.warmUp();
+
         // 1. call the repository-search-bindings/by-doc-repo to check which initiative/doctype/kwdict must be used for this visit
         // http://localhost:8080/tia/api/v1/repository-search-bindings/by-doc-repo/{repo-id}
         for (RepositorySearchBinding searchBinding : configuration.getRepositorySearchBindingsByRepositoryId(docRepo.getId())) {
@@ -78,6 +92,8 @@ public class RepositoryHarvester {
 
             visitRepository(searchBinding, docRepo, keywordDictionary, groupAcronym);
         }
+
+        documentStatusFilter.logStatistics();
     }
 
     private void visitRepository(
@@ -99,58 +115,134 @@ public class RepositoryHarvester {
         DocumentRepositoryAccess repoAccess = DocumentRepositoryAccess.createFromDocumentRepositoryDefinition(docRepo);
 
         int grandTotal = 0;
-        Integer initialPageDelay = docRepo.getPauseBetweenPages();
         KeywordDictionaryDefinition dictionaryDefinition = dictionary.getDictionaryDefinition();
 
-        for (int i = 0; i < dictionaryDefinition.getChildren().size(); i++) {
-            KeywordDictionaryDefinition currentDictionary = new KeywordDictionaryDefinition(
-                dictionaryDefinition.getKeywords(), 
-                dictionaryDefinition.isSkipKeywords(),
-                Arrays.asList(dictionaryDefinition.getChildren().get(i)));
+        if (configuration.getMissionParallelism() > 1) {
+            grandTotal = visitMissionsConcurrently(
+                searchBinding, docRepo, driver, repoAccess, dictionaryDefinition, groupAcronym, searchConfiguration);
+        } else {
+            for (int i = 0; i < dictionaryDefinition.getChildren().size(); i++) {
+                grandTotal += visitMission(
+                    searchBinding, docRepo, driver, repoAccess, dictionaryDefinition, i, groupAcronym, searchConfiguration);
+            }
+        }
 
-            KeywordDictionaryDefinition secondLevelKeyword = dictionaryDefinition.getChildren().get(i);
-    
-            String missionName = secondLevelKeyword.getKeywords().get(0);
-            docRepo.setPauseBetweenPages(initialPageDelay); // reset the initial page delay
+        log.info("repository \"{}\" visit for group \"{}\" finished, documents found: {}", docRepo.getName(), groupAcronym, grandTotal);
+    }
 
-            // setup the query
-            Date startDate = getQueryMaxPublicationDate(searchBinding.getId(), docRepo.getId(), missionName);
-            DocumentRepositoryQuery query = new DocumentRepositoryQuery(
-                currentDictionary, 
-                startDate, 0, 0);
+    /**
+     * harvest the missions in parallel, sharing the rate limit of the repository
+     * @return the number of documents found
+     */
+    private int visitMissionsConcurrently(
+        RepositorySearchBinding searchBinding,
+        DocumentRepository docRepo,
+        DocumentRepositoryDriverInterface driver,
+        DocumentRepositoryAccess repoAccess,
+        KeywordDictionaryDefinition dictionaryDefinition,
+        String groupAcronym,
+        SearchConfiguration searchConfiguration)
+        throws CannotContactRepositoryException, CannotDecodeRepositoryResultsException {
 
-            // do the harvesting
-            HarvestingResult harvestingResult = processHarvesting(driver, repoAccess, query, missionName, groupAcronym, searchConfiguration);
-            grandTotal += harvestingResult.getResultCount();
+        int missionCount = dictionaryDefinition.getChildren().size();
+        if (missionCount == 0) {
+            return 0;
+        }
 
-            log.info("repository \"{}\", mission \"{}\", start-date \"{}\", documents found: {}, max pub date retrieved: \"{}\"", 
-                docRepo.getName(), 
-                missionName, 
-                dateUtil.formatYyyyMmDd(startDate),
-                harvestingResult.getResultCount(),
-                dateUtil.formatYyyyMmDd(harvestingResult.getMaxPublicationDate()));
-
-            if (harvestingResult.getMaxPublicationDate() != null) {
-                // update max publication date
-                setQueryMaxPublicationDate(
-                    searchBinding.getId(), 
-                    docRepo.getId(), 
-                    missionName, 
-                    harvestingResult.getMaxPublicationDate());
+        int threads = Math.min(configuration.getMissionParallelism(), missionCount);
+        log.info("visiting {} missions of repository \"{}\" with {} threads", missionCount, docRepo.getName(), threads);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> missionResults = new ArrayList<>();
+            for (int i = 0; i < missionCount; i++) {
+                final int missionIndex = i;
+                missionResults.add(executor.submit(() -> visitMission(
+                    searchBinding, docRepo, driver, repoAccess, dictionaryDefinition, missionIndex, groupAcronym, searchConfiguration)));
             }
 
-            // pause between missions scan on the same repo
-            if (i < dictionaryDefinition.getChildren().size() - 1 && repoAccess.getPauseBetweenPages() != null) {
-                log.info("pausing between repo missions scan for {} seconds", repoAccess.getPauseBetweenPages());
+            // wait for all the missions, then report the first failure
+            int grandTotal = 0;
+            Exception failure = null;
+            for (Future<Integer> missionResult : missionResults) {
                 try {
-                    Thread.sleep(repoAccess.getPauseBetweenPages() * 1000L);
-                } catch (InterruptedException e) {
-                    log.warn("pause interrupted by: " + e.getMessage());
+                    grandTotal += missionResult.get();
+                } catch (ExecutionException e) {
+                    log.error("mission visit of repository \"" + docRepo.getName() + "\" failed", e.getCause());
+                    if (failure == null && e.getCause() instanceof Exception) {
+                        failure = (Exception) e.getCause();
+                    }
                 }
             }
+
+            if (failure instanceof CannotContactRepositoryException) {
+                throw (CannotContactRepositoryException) failure;
+            } else if (failure instanceof CannotDecodeRepositoryResultsException) {
+                throw (CannotDecodeRepositoryResultsException) failure;
+            } else if (failure != null) {
+                throw new CannotContactRepositoryException("mission visit of repository \"" + docRepo.getName() + "\" failed", failure);
+            }
+
+            return grandTotal;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotContactRepositoryException("repository \"" + docRepo.getName() + "\" visit interrupted", e);
+        } finally {
+            executor.shutdownNow();
         }
+    }
 
-        log.info("repository \"{}\" visit for group \"{}\" finished, documents found: {}", docRepo.getName(), groupAcronym, grandTotal);
+    /**
+     * harvest a single mission (second level keyword), starting from
+     * and then updating its own max publication date checkpoint
+     * @return the number of documents found
+     */
+    private int visitMission(
+        RepositorySearchBinding searchBinding,
+        DocumentRepository docRepo,
+        DocumentRepositoryDriverInterface driver,
+        DocumentRepositoryAccess repoAccess,
+        KeywordDictionaryDefinition dictionaryDefinition,
+        int missionIndex,
+        String groupAcronym,
+        SearchConfiguration searchConfiguration)
+        throws CannotContactRepositoryException, CannotDecodeRepositoryResultsException {
+
+        KeywordDictionaryDefinition currentDictionary = new KeywordDictionaryDefinition(
+            dictionaryDefinition.getKeywords(), 
+            dictionaryDefinition.isSkipKeywords(),
+            Arrays.asList(dictionaryDefinition.getChildren().get(missionIndex)));
+
+        KeywordDictionaryDefinition secondLevelKeyword = dictionaryDefinition.getChildren().get(missionIndex);
+
+        String missionName = secondLevelKeyword.getKeywords().get(0);
+
+        // setup the query
+        Date startDate = getQueryMaxPublicationDate(searchBinding.getId(), docRepo.getId(), missionName);
+        DocumentRepositoryQuery query = new DocumentRepositoryQuery(
+            currentDictionary, 
+            startDate, 0, 0, null);
+
+        // do the harvesting
+        HarvestingResult harvestingResult = processHarvesting(driver, repoAccess, query, missionName, groupAcronym, searchConfiguration);
+
+        log.info("repository \"{}\", mission \"{}\", start-date \"{}\", documents found: {}, max pub date retrieved: \"{}\"", 
+            docRepo.getName(), 
+            missionName, 
+            dateUtil.formatYyyyMmDd(startDate),
+            harvestingResult.getResultCount(),
+            dateUtil.formatYyyyMmDd(harvestingResult.getMaxPublicationDate()));
+
+        if (harvestingResult.getMaxPublicationDate() != null) {
+            // update max publication date
+            setQueryMaxPublicationDate(
+                searchBinding.getId(), 
+                docRepo.getId(), 
+                missionName, 
+                harvestingResult.getMaxPublicationDate());
+        }
+
+        return harvestingResult.getResultCount();
     }
 
     protected HarvestingResult processHarvesting(
@@ -171,6 +263,7 @@ public class RepositoryHarvester {
         Date maxPublicationDate = null;
         boolean continuePagination = true;
         do {
+            // the driver paces the queries with the repository rate limiter
             results = driver.query(groupAcronym, repoAccess, predicate);
 
             log.debug("query results: {}", results);
@@ -188,13 +281,16 @@ public class RepositoryHarvester {
                 doc.getDocument().setKeywordDictionarySecondLevel(secondLevelKeyword);
                 doc.setGroup(groupAcronym);
                 doc.setConfiguration(searchConfiguration);
+            }
+
+            // 4. check if the documents of the page have been already downloaded
+            Map<String, Map<String, DocumentStatus>> docStats = getDocumentStatuses(
+                groupAcronym, secondLevelKeyword, results.getRecordList());
+
+            List<DocumentCommonAttributes> docsToDownload = new ArrayList<>();
+            for (DocumentCommonAttributes doc : results.getRecordList()) {
 
-                // 4. check if the document has been already downloaded
-                DocumentStatus docStat = documentStatusService.getEntity(
-                    groupAcronym,
-                    doc.getRepository().getDriver(), 
-                    doc.getDocument().getKeywordDictionarySecondLevel(),
-                    doc.getId());
+                DocumentStatus docStat = docStats.get(doc.getRepository().getDriver()).get(doc.getId());
 
                 if (docStat != null && (docStat.isCompleted() || docStat.getRetryCount() == 0)) {
                     log.info("document {} {} has been previously downloaded or has reached maximum number of retries, skipping ({})", 
@@ -202,15 +298,10 @@ public class RepositoryHarvester {
                         doc.getId(),
                         docStat);
                 } else {
-                    try {
-                        // 5. propagate the event to the "docs" download queue
-                        documentQueueService.pushDocumentEvent(doc);
-                    } catch (DocumentQueueException e) {
-                        log.error("cannot push document event to queue", e);
-                    }
+                    docsToDownload.add(doc);
                 }
 
-                // 6. set the maximum publication date for the next query
+                // 5. set the maximum publication date for the next query
                 if (maxPublicationDate == null || 
                     (  doc.getDocument().getPublishedOn() != null && 
                        maxPublicationDate.before(doc.getDocument().getPublishedOn()))) {
@@ -218,28 +309,63 @@ public class RepositoryHarvester {
                 }
             }
 
+            // 6. propagate the events of the page to the "docs" download queue
+            if (!docsToDownload.isEmpty()) {
+                try {
+                    List<String> failedIds = documentQueueService.pushDocumentEvents(docsToDownload);
+                    if (!failedIds.isEmpty()) {
+                        log.error("cannot push {} document events to queue: {}", failedIds.size(), failedIds);
+                    }
+                } catch (DocumentQueueException e) {
+                    log.error("cannot push " + docsToDownload.size() + " document events to queue", e);
+                }
+            }
+
             if (driver.customPaginationImplemention()) {
-                continuePagination = driver.proceedWithQueryPage();
+                continuePagination = driver.proceedWithQueryPage(predicate, results);
             } else {
                 continuePagination = !results.getRecordList().isEmpty();
             }
-
-            // TODO: check the pause for the same repo on different repository-search-binding
-            // if (continuePagination && repoAccess.getPauseBetweenPages() != null) {
-            //      log.info("pausing pagination for {} seconds", repoAccess.getPauseBetweenPages());
-            if (repoAccess.getPauseBetweenPages() != null) {
-                log.info("pausing for {} seconds", repoAccess.getPauseBetweenPages());
-                try {
-                    Thread.sleep(repoAccess.getPauseBetweenPages() * 1000L);
-                } catch (InterruptedException e) {
-                    log.warn("pause interrupted by: " + e.getMessage());
-                }
-            }
         } while (continuePagination);
         
         return new HarvestingResult(totalResults, maxPublicationDate);
     }
 
+    /**
+     * fetch the download status of the documents with one lookup for each repository driver,
+     * skipping the documents surely never downloaded according to the document status filter
+     * @return the status of the documents found, by repository driver and document id
+     */
+    private Map<String, Map<String, DocumentStatus>> getDocumentStatuses(
+        String groupAcronym, String secondLevelKeyword, List<DocumentCommonAttributes> docs) {
+
+        Map<String, List<String>> idsByDriver = new HashMap<>();
+        for (DocumentCommonAttributes doc : docs) {
+            String driver = doc.getRepository().getDriver();
+            List<String> ids = idsByDriver.computeIfAbsent(driver, k -> new ArrayList<>());
+
+            if (documentStatusFilter.mightBeDone(DocumentStatus.getId(groupAcronym, driver, secondLevelKeyword, doc.getId()))) {
+                ids.add(doc.getId());
+            }
+        }
+
+        Map<String, Map<String, DocumentStatus>> docStats = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : idsByDriver.entrySet()) {
+            Map<String, DocumentStatus> driverStats = documentStatusService.getEntities(
+                groupAcronym,
+                entry.getKey(),
+                secondLevelKeyword,
+                entry.getValue());
+
+            for (String id : entry.getValue()) {
+                DocumentStatus docStat = driverStats.get(id);
+                documentStatusFilter.recordLookup(docStat != null && DocumentStatusService.isDone(docStat));
+            }
+            docStats.put(entry.getKey(), driverStats);
+        }
+        return docStats;
+    }
+
     private Date getQueryMaxPublicationDate(String repositorySearchBindingId, String repositoryId, String mission) {
         // get the max publication date reached for this repoSearchBinding/repository combination
         // http://localhost:8080/tia/api/v1/query-max-publication-date/{rsbinding-id}/{repo-id}/{mission}
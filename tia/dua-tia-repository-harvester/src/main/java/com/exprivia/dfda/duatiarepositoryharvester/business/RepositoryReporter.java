@@ -47,7 +47,6 @@ public class RepositoryReporter {
         KeywordDictionaryDefinition dictionaryDefinition = dictionary.getDictionaryDefinition();
 
         int grandTotal = 0;
-        Integer initialPageDelay = docRepo.getPauseBetweenPages();
         for (int i = 0; i < dictionaryDefinition.getChildren().size(); i++) {
             KeywordDictionaryDefinition dictionary = new KeywordDictionaryDefinition(
                 dictionaryDefinition.getKeywords(), 
@@ -57,12 +56,11 @@ public class RepositoryReporter {
             KeywordDictionaryDefinition secondLevelKeyword = dictionaryDefinition.getChildren().get(i);
             DocumentRepositoryQuery query = new DocumentRepositoryQuery(
                 dictionary, 
-                startDate, 0, 0);
+                startDate, 0, 0, null);
 
 
             // do the harvesting
             String missionName =  secondLevelKeyword.getKeywords().get(0);
-            docRepo.setPauseBetweenPages(initialPageDelay); // reset the initial page delay
 
             String queryStr = driver.getQueryAsString(query, 0);
             out.println(
@@ -75,16 +73,6 @@ public class RepositoryReporter {
             grandTotal += resultsCount;
 
             log.info("repository \"{}\", mission \"{}\", documents found: {}", docRepo.getName(), missionName, resultsCount);
-
-            // pause between missions scan on the same repo
-            if (i < dictionaryDefinition.getChildren().size() - 1 && repoAccess.getPauseBetweenPages() != null) {
-                log.info("pausing between repo missions scan for {} seconds", repoAccess.getPauseBetweenPages());
-                try {
-                    Thread.sleep(repoAccess.getPauseBetweenPages() * 1000L);
-                } catch (InterruptedException e) {
-                    log.warn("pause interrupted by: " + e.getMessage());
-                }
-            }
         }
 
         log.info("repository \"{}\" visit finished, documents found: {}", docRepo.getName(), grandTotal);
@@ -155,19 +143,10 @@ public class RepositoryReporter {
             }
 
             if (driver.customPaginationImplemention()) {
-                continuePagination = driver.proceedWithQueryPage();
+                continuePagination = driver.proceedWithQueryPage(predicate, results);
             } else {
                 continuePagination = !results.getRecordList().isEmpty();
             }
-
-            if (continuePagination && repoAccess.getPauseBetweenPages() != null) {
-                log.info("pausing pagination for {} seconds", repoAccess.getPauseBetweenPages());
-                try {
-                    Thread.sleep(repoAccess.getPauseBetweenPages() * 1000L);
-                } catch (InterruptedException e) {
-                    log.warn("pause interrupted by: " + e.getMessage());
-                }
-            }
         } while (continuePagination);
         
         return totalResults;
@@ -0,0 +1,169 @@
+package com.exprivia.dfda.duatiarepositoryharvester.business.dedup;
+
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import com.exprivia.dfda.tia.service.DocumentStatusService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * local set of the documents already downloaded or with no retries left,
+ * used to skip the status lookup of the documents surely never downloaded.
+ *
+ * The set is loaded from redis on the first repository visit, then kept
+ * up to date with the status changes published by the document retrievers.
+ * A change missed while disconnected only costs the download request of a
+ * document that the retriever will then skip.
+ */
+@Component
+@Slf4j
+public class DocumentStatusFilter implements MessageListener {
+    private static final String METRIC_NAME = "repository.harvester.document.status.filter";
+
+    @Value("${dua.tia.repositoryharvester.dedup-filter.enabled}")
+    private boolean enabled;
+
+    @Value("${dua.tia.repositoryharvester.dedup-filter.expected-documents}")
+    private long expectedDocuments;
+
+    @Value("${dua.tia.repositoryharvester.dedup-filter.false-positive-rate}")
+    private double falsePositiveRate;
+
+    @Value("${dua.tia.repositoryharvester.dedup-filter.warm-up-batch-size}")
+    private int warmUpBatchSize;
+
+    @Autowired
+    private DocumentStatusService documentStatusService;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BloomFilter filter;
+
+    private volatile boolean ready = false;
+
+    private Counter skippedLookups;
+    private Counter confirmedLookups;
+    private Counter falsePositiveLookups;
+
+    @PostConstruct
+    public void initialize() {
+        if (!enabled) {
+            log.info("document status filter disabled");
+            return;
+        }
+
+        filter = new BloomFilter(expectedDocuments, falsePositiveRate);
+        log.info("document status filter sized for {} documents with {} false positive rate: {} bits, {} hashes",
+            expectedDocuments, falsePositiveRate, filter.getBitCount(), filter.getHashCount());
+
+        skippedLookups = Counter.builder(METRIC_NAME)
+            .description("document status lookups by filter result")
+            .tag("result", "miss")
+            .register(meterRegistry);
+        confirmedLookups = Counter.builder(METRIC_NAME)
+            .description("document status lookups by filter result")
+            .tag("result", "hit")
+            .register(meterRegistry);
+        falsePositiveLookups = Counter.builder(METRIC_NAME)
+            .description("document status lookups by filter result")
+            .tag("result", "false-positive")
+            .register(meterRegistry);
+        Gauge.builder(METRIC_NAME + ".size", filter, BloomFilter::getInsertions)
+            .description("documents added to the filter")
+            .register(meterRegistry);
+
+        // subscribe before loading, so that no change is lost in between
+        listenerContainer.addMessageListener(this, new ChannelTopic(DocumentStatusService.DOCUMENT_DONE_CHANNEL));
+    }
+
+    /**
+     * load the documents done from redis, if not yet loaded;
+     * on failure the filter stays unused and the loading is tried again on the next call
+     */
+    public synchronized void warmUp() {
+        if (!enabled || ready) {
+            return;
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            long scanned = documentStatusService.scanDoneEntityIds(warmUpBatchSize, filter::put);
+            ready = true;
+
+            log.info("document status filter loaded in {} ms: {} documents done out of {}",
+                System.currentTimeMillis() - start, filter.getInsertions(), scanned);
+            if (filter.getInsertions() > expectedDocuments) {
+                log.warn("document status filter holds more than the {} expected documents, false positives will increase", expectedDocuments);
+            }
+        } catch (RuntimeException e) {
+            log.error("cannot load document status filter, document statuses will all be looked up", e);
+        }
+    }
+
+    /**
+     * @param statusId the DocumentStatus id of the document
+     * @return false if the document has surely never been downloaded nor exhausted its retries
+     */
+    public boolean mightBeDone(String statusId) {
+        if (!ready) {
+            return true;
+        }
+
+        boolean found = filter.mightContain(statusId);
+        if (!found) {
+            skippedLookups.increment();
+        }
+        return found;
+    }
+
+    /**
+     * report the outcome of the status lookup of a document found by mightBeDone()
+     */
+    public void recordLookup(boolean done) {
+        if (!ready) {
+            return;
+        }
+
+        if (done) {
+            confirmedLookups.increment();
+        } else {
+            falsePositiveLookups.increment();
+        }
+    }
+
+    /**
+     * log the lookups counted since the startup, the same values published by the metrics
+     */
+    public void logStatistics() {
+        if (!ready) {
+            return;
+        }
+
+        log.info("document status filter: {} documents, lookups skipped {}, confirmed {}, false positives {}",
+            filter.getInsertions(),
+            (long) skippedLookups.count(),
+            (long) confirmedLookups.count(),
+            (long) falsePositiveLookups.count());
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        filter.put(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+}
@@ -10,6 +10,12 @@ public interface DocumentRepositoryDriverInterface {
 
     public String getDriverName();
 
+    /**
+     * maximum request rate allowed by the repository API quota
+     * @return requests per second
+     */
+    public double getMaxRequestsPerSecond();
+
     /**
      * reset the driver to begin a new paging query
      */
@@ -31,10 +37,13 @@ public interface DocumentRepositoryDriverInterface {
     }
 
     /**
-     * additional evaluation to determine if the pagination should stop
+     * additional evaluation to determine if the pagination should stop,
+     * it can update the query predicate to point to the next page
+     * @param predicate the query of the page just retrieved
+     * @param results the results of the page just retrieved
      * @return boolean
      */
-    default boolean proceedWithQueryPage() {
+    default boolean proceedWithQueryPage(DocumentRepositoryQuery predicate, DocumentRepositoryQueryResult results) {
         return false;
     }
 
@@ -1,9 +1,12 @@
 package com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.driver.implementation;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.ArrayList;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -19,17 +22,20 @@ import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.exceptions.C
 import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.exceptions.CannotDecodeRepositoryResultsException;
 import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.exceptions.UnexpectedJsonStructureException;
 import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.query.DocumentRepositoryQuery;
+import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.ratelimit.RepositoryRateLimiterRegistry;
 import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.result.DocumentRepositoryQueryResult;
+import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.util.DateUtil;
+import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.util.JsonRecordReader;
 import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.util.JsonUtil;
+import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.util.RestUtil;
 import com.exprivia.dfda.tia.model.DocumentCommonAttributes;
 import com.exprivia.dfda.tia.model.DownloadDriverEnum;
 import com.exprivia.dfda.tia.model.DocumentCommonAttributes.PublicationType;
 import com.exprivia.dfda.tia.model.DocumentCommonAttributes.Document.Citation;
 import com.exprivia.dfda.tia.model.KeywordDictionary.KeywordDictionaryDefinition;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 
 @Component
@@ -39,7 +45,24 @@ public class DocumentRepositoryDriverJrc implements DocumentRepositoryDriverInte
     private JsonUtil jsonUtil;
 
     @Autowired
-    private ObjectMapper mapper;
+    private RestUtil restUtil;
+
+    @Autowired
+    private DateUtil dateUtil;
+
+    @Autowired
+    private RepositoryRateLimiterRegistry rateLimiters;
+
+    @Autowired
+    private JsonRecordReader jsonRecordReader;
+
+    @Value("${dua.tia.repositoryharvester.rate-limit.jrc-requests-per-sec}")
+    private double maxRequestsPerSecond;
+
+    @Value("${dua.tia.repositoryharvester.http.jrc-read-timeout-sec}")
+    private int readTimeout;
+
+    private RestTemplate restTemplate;
 
     private static final String DRIVER_NAME = "jrc";
 
@@ -48,6 +71,44 @@ public class DocumentRepositoryDriverJrc implements DocumentRepositoryDriverInte
         return DRIVER_NAME;
     }
 
+    @PostConstruct
+    public void initializeRestTemplate() {
+        restTemplate = restUtil.createRestTemplate(readTimeout);
+    }
+
+    @Override
+    public double getMaxRequestsPerSecond() {
+        return maxRequestsPerSecond;
+    }
+
+    @Override
+    public boolean customPaginationImplemention() {
+        return true;
+    }
+
+    /**
+     * the results are sorted by publication date descending, so the pages following
+     * the first one having only documents older than the query start date are not
+     * fetched on incremental visits
+     */
+    @Override
+    public boolean proceedWithQueryPage(DocumentRepositoryQuery predicate, DocumentRepositoryQueryResult results) {
+        if (results.getRecordList().isEmpty()) {
+            return false;
+        }
+        if (predicate.getStartDate() == null) {
+            return true;
+        }
+
+        boolean newDocumentsFound = results.getRecordList().stream()
+            .map(doc -> doc.getDocument().getPublishedOn())
+            .anyMatch(publishedOn -> publishedOn == null || !publishedOn.before(predicate.getStartDate()));
+        if (!newDocumentsFound) {
+            log.info("documents older than start date {} reached, stopping pagination", dateUtil.formatYyyyMmDd(predicate.getStartDate()));
+        }
+        return newDocumentsFound;
+    }
+
     @Override
     public DocumentRepositoryQueryResult query(String groupName, DocumentRepositoryAccess repoAccess, DocumentRepositoryQuery predicate) 
         throws CannotContactRepositoryException, CannotDecodeRepositoryResultsException {
@@ -64,31 +125,35 @@ public class DocumentRepositoryDriverJrc implements DocumentRepositoryDriverInte
         UriComponents uriComponents = UriComponentsBuilder.fromUriString(repoUrl).build().encode();
 
         log.debug("encoded url = {}", uriComponents.toUriString());
-        
-        RestTemplate restTemplate = new RestTemplate();
-        ResponseEntity<String> response = null;
+
+        /*
+         * the query results are parsed while they are received, extracting
+         * the document title, authors, online url and all the other important metadata
+         */
+        JrcResultsTranslator resultTranslator = new JrcResultsTranslator(groupName, repoAccess);
+
+        ResponseEntity<DocumentRepositoryQueryResult> response = null;
         try {
-            response = restTemplate.exchange(uriComponents.toUri(), HttpMethod.GET, null, String.class);
+            response = restUtil.exchange(
+                rateLimiters.getRateLimiter(this, repoAccess),
+                () -> restTemplate.execute(uriComponents.toUri(), HttpMethod.GET,
+                    restTemplate.acceptHeaderRequestCallback(String.class),
+                    jsonRecordReader.responseExtractor(resultTranslator::translate)));
         } catch (RestClientException e) {
+            CannotDecodeRepositoryResultsException decodingFailure = JsonRecordReader.getDecodingFailure(e);
+            if (decodingFailure != null) {
+                throw decodingFailure;
+            }
             throw new CannotContactRepositoryException("cannot contact repository " + repoAccess.getUrl(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotContactRepositoryException("repository query interrupted", e);
         }
         if (response.getStatusCode() != HttpStatus.OK) {
             throw new CannotContactRepositoryException("Error " + response.getStatusCode() + " contacting repo at url " + repoAccess.getUrl().toString());
         }
 
-        try {
-            JsonNode root = mapper.readTree(response.getBody());
-            log.debug("response json: {}", root);
-
-            /*
-			 * parse the query results, extracting the document title,
-			 * authors, online url and all the other important metadata
-			 */
-            JrcResultsTranslator resultTranslator = new JrcResultsTranslator(groupName, root, repoAccess);
-            return resultTranslator.translate();
-        } catch (JsonProcessingException e) {
-            throw new CannotContactRepositoryException("cannot parse json response", e);
-        }
+        return response.getBody();
 	}
 
     @Override
@@ -115,14 +180,11 @@ public class DocumentRepositoryDriverJrc implements DocumentRepositoryDriverInte
             StringBuilder s = new StringBuilder();
             s.append("q={\"criteria\":{");
 
-            /* TODO: ensure the result set can be ordered by publication date before enable the pub date condition
-            if (predicate.getStartDate() != null) {
-                s.append("\"YEAR\":");
-                Calendar cal = Calendar.getInstance();
-                cal.setTime(predicate.getStartDate());
-                s.append(cal.get(Calendar.YEAR));
-            }
-            */
+            /*
+             * the YEAR criterion selects a single year, the start date is applied
+             * instead by stopping the date-desc sorted pages at the first page
+             * older than the start date (see proceedWithQueryPage)
+             */
             s.append("},\"query\":\"");
             s.append(navigateConditions(predicate.getKeywords()).replace("\"", "\\\""));
             s.append("\",\"sort\":\"date-desc\",\"page\":");
@@ -179,40 +241,34 @@ public class DocumentRepositoryDriverJrc implements DocumentRepositoryDriverInte
 
 	private class JrcResultsTranslator {
         private String groupName;
-		private JsonNode contents;
         private DocumentRepositoryAccess repositoryAccess;
 
         private static final String TYPE_DOCUMENT = "DOCUMENT";
 
-		public JrcResultsTranslator(String groupName, JsonNode contents, DocumentRepositoryAccess repositoryAccess) {
+        private static final String[] RESULTS_PATH = { "items" };
+
+		public JrcResultsTranslator(String groupName, DocumentRepositoryAccess repositoryAccess) {
             this.groupName = groupName;
-			this.contents = contents;
             this.repositoryAccess = repositoryAccess;
 		}
 
-		private DocumentRepositoryQueryResult translate() throws CannotDecodeRepositoryResultsException {
+		private DocumentRepositoryQueryResult translate(InputStream contents)
+            throws IOException, CannotDecodeRepositoryResultsException {
             DocumentRepositoryQueryResult results = new DocumentRepositoryQueryResult();
 
-            // translate result records
-            JsonNode items = contents.get("items");
-            if (items != null) {
-                if (!items.isArray()) {
-                    throw new CannotDecodeRepositoryResultsException("\"items\" node is not an array");
-				}
-
-				for (JsonNode docRecord : items) {
-                    DocumentCommonAttributes docAttr = translateRecord(docRecord);
-					
-                    if (docAttr != null) {
-                        results.getRecordList().add(docAttr);
-                    }
-				}
-            }
+            // translate result records, one at a time
+            jsonRecordReader.readRecords(contents, RESULTS_PATH, (docRecord, rawRecord) -> {
+                DocumentCommonAttributes docAttr = translateRecord(docRecord, rawRecord);
+
+                if (docAttr != null) {
+                    results.getRecordList().add(docAttr);
+                }
+            });
 
             return results;
 		}
 
-        private DocumentCommonAttributes translateRecord(JsonNode record) throws CannotDecodeRepositoryResultsException {
+        private DocumentCommonAttributes translateRecord(JsonNode record, String rawRecord) throws CannotDecodeRepositoryResultsException {
             /*
             @NonNull
             idInRepo            id
@@ -293,7 +349,7 @@ public class DocumentRepositoryDriverJrc implements DocumentRepositoryDriverInte
                         .journalImpactFactor(null)
                         .build()
                     )
-                    .rawSearchResultRecord(record.toString())
+                    .rawSearchResultRecord(rawRecord)
                     .build();
                 
 
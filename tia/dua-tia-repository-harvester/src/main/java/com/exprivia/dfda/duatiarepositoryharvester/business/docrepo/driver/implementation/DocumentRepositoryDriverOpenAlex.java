@@ -1,5 +1,7 @@
 package com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.driver.implementation;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -10,6 +12,8 @@ import java.net.URI;
 import java.util.ArrayList;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
@@ -24,16 +28,19 @@ import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.exceptions.C
 import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.exceptions.CannotDecodeRepositoryResultsException;
 import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.exceptions.UnexpectedJsonStructureException;
 import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.query.DocumentRepositoryQuery;
+import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.ratelimit.RepositoryRateLimiterRegistry;
 import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.result.DocumentRepositoryQueryResult;
+import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.util.DateUtil;
+import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.util.JsonRecordReader;
 import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.util.JsonUtil;
+import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.util.RestUtil;
 import com.exprivia.dfda.tia.model.DocumentCommonAttributes;
 import com.exprivia.dfda.tia.model.DownloadDriverEnum;
 import com.exprivia.dfda.tia.model.DocumentCommonAttributes.PublicationType;
 import com.exprivia.dfda.tia.model.KeywordDictionary.KeywordDictionaryDefinition;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 
 @Component
@@ -43,15 +50,67 @@ public class DocumentRepositoryDriverOpenAlex implements DocumentRepositoryDrive
     private JsonUtil jsonUtil;
 
     @Autowired
-    private ObjectMapper mapper;
+    private RestUtil restUtil;
+
+    @Autowired
+    private DateUtil dateUtil;
+
+    @Autowired
+    private RepositoryRateLimiterRegistry rateLimiters;
+
+    @Autowired
+    private JsonRecordReader jsonRecordReader;
+
+    @Value("${dua.tia.repositoryharvester.rate-limit.open-alex-requests-per-sec}")
+    private double maxRequestsPerSecond;
+
+    @Value("${dua.tia.repositoryharvester.http.open-alex-read-timeout-sec}")
+    private int readTimeout;
+
+    @Value("${dua.tia.repositoryharvester.open-alex.per-page}")
+    private int perPage;
+
+    @Value("${dua.tia.repositoryharvester.open-alex.select}")
+    private String selectFields;
+
+    private RestTemplate restTemplate;
 
     private static final String DRIVER_NAME = "open_alex";
 
+    // cursor of the first page
+    private static final String FIRST_PAGE_CURSOR = "*";
+
     @Override
     public String getDriverName() {
         return DRIVER_NAME;
     }
 
+    @PostConstruct
+    public void initializeRestTemplate() {
+        restTemplate = restUtil.createRestTemplate(readTimeout);
+    }
+
+    @Override
+    public double getMaxRequestsPerSecond() {
+        return maxRequestsPerSecond;
+    }
+
+    /**
+     * the pages are walked with the cursor returned in the results metadata,
+     * as the page number based pagination is limited to the first 10000 results
+     */
+    @Override
+    public boolean customPaginationImplemention() {
+        return true;
+    }
+
+    @Override
+    public boolean proceedWithQueryPage(DocumentRepositoryQuery predicate, DocumentRepositoryQueryResult results) {
+        // the cursor is null after the last page
+        predicate.setPaginationCursor(results.getNextPaginationCursor());
+        return results.getNextPaginationCursor() != null && !results.getRecordList().isEmpty();
+    }
+
     @Override
     public DocumentRepositoryQueryResult query(String groupName, DocumentRepositoryAccess repoAccess, DocumentRepositoryQuery predicate)
             throws CannotContactRepositoryException, CannotDecodeRepositoryResultsException {
@@ -59,46 +118,53 @@ public class DocumentRepositoryDriverOpenAlex implements DocumentRepositoryDrive
         OpenAlexQueryTranslator coreQuery = new OpenAlexQueryTranslator(predicate);
         String strQuery = coreQuery.toString();
 
-        log.info("query = {}", strQuery);
+        log.info("query = {}, cursor = {}", strQuery, coreQuery.getCursor());
 
+        // the cursor is passed as uri variable to have all its reserved characters encoded
         String repoUrl = repoAccess.getUrl() + "?" + strQuery;
-        UriComponents uriComponents = UriComponentsBuilder.fromUriString(repoUrl).build().encode();
+        UriComponents uriComponents = UriComponentsBuilder.fromUriString(repoUrl)
+            .queryParam("cursor", "{cursor}")
+            .encode()
+            .buildAndExpand(coreQuery.getCursor());
 
         log.debug("encoded url = {}", uriComponents.toUriString());
 
-        // do the actual query on remote repository
+        /*
+         * do the actual query on remote repository, parsing the query results
+         * while they are received, extracting the document title,
+         * authors, online url and all the other important metadata
+         */
+        OpenAlexResultsTranslator resultTranslator = new OpenAlexResultsTranslator(groupName, repoAccess);
 
-        RestTemplate restTemplate = new RestTemplate();
-        ResponseEntity<String> response = null;
+        ResponseEntity<DocumentRepositoryQueryResult> response = null;
         try {
-            response = restTemplate.getForEntity(uriComponents.toUri(), String.class);
+            response = restUtil.exchange(
+                rateLimiters.getRateLimiter(this, repoAccess),
+                () -> restTemplate.execute(uriComponents.toUri(), HttpMethod.GET,
+                    restTemplate.acceptHeaderRequestCallback(String.class),
+                    jsonRecordReader.responseExtractor(resultTranslator::translate)));
         } catch (RestClientException e) {
+            CannotDecodeRepositoryResultsException decodingFailure = JsonRecordReader.getDecodingFailure(e);
+            if (decodingFailure != null) {
+                throw decodingFailure;
+            }
             throw new CannotContactRepositoryException("cannot contact repository " + repoAccess.getUrl(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotContactRepositoryException("repository query interrupted", e);
         }
         if (response.getStatusCode() != HttpStatus.OK) {
             throw new CannotContactRepositoryException(
                     "Error " + response.getStatusCode() + " contacting repo at url " + repoAccess.getUrl().toString());
         }
 
-        try {
-            JsonNode root = mapper.readTree(response.getBody());
-            log.debug("response json: {}", root);
-
-            /*
-             * parse the query results, extracting the document title,
-             * authors, online url and all the other important metadata
-             */
-            OpenAlexResultsTranslator resultTranslator = new OpenAlexResultsTranslator(groupName, root, repoAccess);
-            return resultTranslator.translate();
-        } catch (JsonProcessingException e) {
-            throw new CannotContactRepositoryException("cannot parse json response", e);
-        }
+        return response.getBody();
     }
 
     @Override
     public String getQueryAsString(DocumentRepositoryQuery query, int pageLimit) {
         OpenAlexQueryTranslator repoQuery = new OpenAlexQueryTranslator(query);
-        return repoQuery.toString();
+        return repoQuery.toString() + "&cursor=" + repoQuery.getCursor();
     }
 
     private class OpenAlexQueryTranslator {
@@ -116,17 +182,34 @@ public class DocumentRepositoryDriverOpenAlex implements DocumentRepositoryDrive
             sb.append("filter=");
             sb.append(FIXED_CONDITIONS);
             sb.append(",");
+            // incremental visits only fetch the works published since the last visit
+            if (predicate.getStartDate() != null) {
+                sb.append("from_publication_date:");
+                sb.append(dateUtil.formatYyyyMmDd(predicate.getStartDate()));
+                sb.append(",");
+            }
             sb.append("title_and_abstract.search:");
             sb.append(navigateConditions(predicate.getKeywords()));
 
             sb.append("&");
 
-            sb.append("page=");
-            sb.append(predicate.getPaginationPageNumber() + 1);
+            sb.append("per-page=");
+            sb.append(perPage);
+
+            // fetch only the fields translated into the document attributes
+            if (!selectFields.isBlank()) {
+                sb.append("&");
+                sb.append("select=");
+                sb.append(selectFields.replaceAll("\\s", ""));
+            }
 
             return sb.toString();
         }
 
+        public String getCursor() {
+            return predicate.getPaginationCursor() != null ? predicate.getPaginationCursor() : FIRST_PAGE_CURSOR;
+        }
+
         private String navigateConditions(KeywordDictionaryDefinition dict) {
             StringBuilder s = new StringBuilder();
 
@@ -173,37 +256,38 @@ public class DocumentRepositoryDriverOpenAlex implements DocumentRepositoryDrive
 
     private class OpenAlexResultsTranslator {
         private String groupName;
-        private JsonNode contents;
         private DocumentRepositoryAccess repositoryAccess;
 
-        public OpenAlexResultsTranslator(String groupName, JsonNode contents, DocumentRepositoryAccess repositoryAccess) {
+        private static final String[] RESULTS_PATH = { "results" };
+
+        public OpenAlexResultsTranslator(String groupName, DocumentRepositoryAccess repositoryAccess) {
             this.groupName = groupName;
-            this.contents = contents;
             this.repositoryAccess = repositoryAccess;
         }
 
-        private DocumentRepositoryQueryResult translate() throws CannotDecodeRepositoryResultsException {
+        private DocumentRepositoryQueryResult translate(InputStream contents)
+                throws IOException, CannotDecodeRepositoryResultsException {
             DocumentRepositoryQueryResult results = new DocumentRepositoryQueryResult();
 
-            // translate result records
-            JsonNode resultsNode = contents.get("results");
-            if (resultsNode == null) {
+            // translate result records, one at a time
+            int found = jsonRecordReader.readRecords(contents, RESULTS_PATH, (docRecord, rawRecord) ->
+                    results.getRecordList().add(
+                            translateRecord(docRecord, rawRecord)),
+                    (name, value) -> {
+                        if (name.equals("meta")) {
+                            JsonNode nextCursor = value.get("next_cursor");
+                            results.setNextPaginationCursor(
+                                    nextCursor != null && nextCursor.isTextual() ? nextCursor.asText() : null);
+                        }
+                    });
+            if (found < RESULTS_PATH.length) {
                 throw new CannotDecodeRepositoryResultsException("missing required node \"results\" in response");
             }
 
-            if (!resultsNode.isArray()) {
-                throw new CannotDecodeRepositoryResultsException("\"results\" node is not an array");
-            }
-
-            for (JsonNode docRecord : resultsNode) {
-                results.getRecordList().add(
-                        translateRecord(docRecord));
-            }
-
             return results;
         }
 
-        private DocumentCommonAttributes translateRecord(JsonNode record)
+        private DocumentCommonAttributes translateRecord(JsonNode record, String rawRecord)
                 throws CannotDecodeRepositoryResultsException {
             try {
                 URI iduri = URI.create(jsonUtil.getStringNodeValue(record, "id", true));
@@ -312,7 +396,7 @@ public class DocumentRepositoryDriverOpenAlex implements DocumentRepositoryDrive
                                         .journalIssns(issns)
                                         .journalImpactFactor(null)
                                         .build())
-                        .rawSearchResultRecord(record.toString())
+                        .rawSearchResultRecord(rawRecord)
                         .build();
                 return docRecord;
             } catch (UnexpectedJsonStructureException e) {
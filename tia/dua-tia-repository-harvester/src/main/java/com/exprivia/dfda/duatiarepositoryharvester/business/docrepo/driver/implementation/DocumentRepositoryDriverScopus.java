@@ -1,10 +1,14 @@
 package com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.driver.implementation;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.util.Arrays;
 import java.util.List;
 import java.util.ArrayList;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -13,6 +17,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.DocumentRepositoryAccess;
 import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.driver.DocumentRepositoryDriverInterface;
@@ -20,17 +25,19 @@ import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.exceptions.C
 import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.exceptions.CannotDecodeRepositoryResultsException;
 import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.exceptions.UnexpectedJsonStructureException;
 import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.query.DocumentRepositoryQuery;
+import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.ratelimit.RepositoryRateLimiterRegistry;
 import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.result.DocumentRepositoryQueryResult;
+import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.util.DateUtil;
+import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.util.JsonRecordReader;
 import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.util.JsonUtil;
 import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.util.RestUtil;
 import com.exprivia.dfda.tia.model.DocumentCommonAttributes;
 import com.exprivia.dfda.tia.model.DownloadDriverEnum;
 import com.exprivia.dfda.tia.model.DocumentCommonAttributes.PublicationType;
 import com.exprivia.dfda.tia.model.KeywordDictionary.KeywordDictionaryDefinition;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 
 @Component
@@ -43,7 +50,27 @@ public class DocumentRepositoryDriverScopus implements DocumentRepositoryDriverI
     private RestUtil restUtil;
 
     @Autowired
-    private ObjectMapper mapper;
+    private DateUtil dateUtil;
+
+    @Autowired
+    private RepositoryRateLimiterRegistry rateLimiters;
+
+    @Autowired
+    private JsonRecordReader jsonRecordReader;
+
+    @Value("${dua.tia.repositoryharvester.rate-limit.scopus-requests-per-sec}")
+    private double maxRequestsPerSecond;
+
+    @Value("${dua.tia.repositoryharvester.http.scopus-read-timeout-sec}")
+    private int readTimeout;
+
+    @Value("${dua.tia.repositoryharvester.scopus.count}")
+    private int count;
+
+    @Value("${dua.tia.repositoryharvester.scopus.load-date-filter}")
+    private boolean loadDateFilter;
+
+    private RestTemplate restTemplate;
 
     private static final String DRIVER_NAME = "scopus";
 
@@ -54,26 +81,57 @@ public class DocumentRepositoryDriverScopus implements DocumentRepositoryDriverI
 
     private static final String DOI_RESOLVER_URL = "https://www.doi.org/";
 
+    // cursor of the first page
+    private static final String FIRST_PAGE_CURSOR = "*";
+
     @Override
     public String getDriverName() {
         return DRIVER_NAME;
     }
 
+    @PostConstruct
+    public void initializeRestTemplate() {
+        restTemplate = restUtil.createRestTemplate(readTimeout);
+    }
+
+    @Override
+    public double getMaxRequestsPerSecond() {
+        return maxRequestsPerSecond;
+    }
+
+    /**
+     * the pages are walked with the cursor returned in the search results,
+     * as the offset based pagination is limited to the first 5000 results
+     */
+    @Override
+    public boolean customPaginationImplemention() {
+        return true;
+    }
+
+    @Override
+    public boolean proceedWithQueryPage(DocumentRepositoryQuery predicate, DocumentRepositoryQueryResult results) {
+        // past the last page the results hold only an "empty result set" error entry
+        predicate.setPaginationCursor(results.getNextPaginationCursor());
+        return results.getNextPaginationCursor() != null && !results.getRecordList().isEmpty();
+    }
+
     @Override
     public DocumentRepositoryQueryResult query(String groupName, DocumentRepositoryAccess repoAccess, DocumentRepositoryQuery predicate)
             throws CannotContactRepositoryException, CannotDecodeRepositoryResultsException {
         
-        ScopusQueryTranslator scopusQuery = new ScopusQueryTranslator(predicate);
+        ScopusQueryTranslator scopusQuery = new ScopusQueryTranslator(predicate, repoAccess.getPageLimit());
         String strQuery = scopusQuery.toString();
 
-        if (repoAccess.getPageLimit() != null) {
-            log.warn("configured page limit not implemented for Scopus");
-        }
-
-        log.info("query = {}", strQuery);
+        log.info("query = {}, cursor = {}", strQuery, scopusQuery.getCursor());
 
-        // do the actual query on remote repository
+        // do the actual query on remote repository,
+        // the cursor is passed as uri variable to have all its reserved characters encoded
         String repoUrl = repoAccess.getUrl().toString().replaceAll("/+$", "") + QUERY_URL_PATH + "?" + strQuery;
+        URI repoUri = UriComponentsBuilder.fromUriString(repoUrl)
+            .queryParam("cursor", "{cursor}")
+            .encode()
+            .buildAndExpand(scopusQuery.getCursor())
+            .toUri();
 
         HttpHeaders headers = new HttpHeaders();
         if (repoAccess.getCredentials() != null) {
@@ -83,51 +141,55 @@ public class DocumentRepositoryDriverScopus implements DocumentRepositoryDriverI
 
         HttpEntity<String> entity = new HttpEntity<String>(null, headers);
 
-        RestTemplate restTemplate = new RestTemplate();
-        ResponseEntity<String> response = null;
+        /*
+         * the query results are parsed while they are received, extracting
+         * the document title, authors, online url and all the other important metadata
+         */
+        ScopusResultsTranslator resultTranslator = new ScopusResultsTranslator(groupName, repoAccess);
+
+        ResponseEntity<DocumentRepositoryQueryResult> response = null;
         try {
-            response = restTemplate.exchange(repoUrl, HttpMethod.GET, entity, String.class);
+            response = restUtil.exchange(
+                rateLimiters.getRateLimiter(this, repoAccess),
+                () -> restTemplate.execute(repoUri, HttpMethod.GET,
+                    restTemplate.httpEntityCallback(entity, String.class),
+                    jsonRecordReader.responseExtractor(resultTranslator::translate)));
         } catch (RestClientException e) {
+            CannotDecodeRepositoryResultsException decodingFailure = JsonRecordReader.getDecodingFailure(e);
+            if (decodingFailure != null) {
+                throw decodingFailure;
+            }
             throw new CannotContactRepositoryException("cannot contact repository " + repoAccess.getUrl(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotContactRepositoryException("repository query interrupted", e);
         }
         if (response.getStatusCode() != HttpStatus.OK) {
             throw new CannotContactRepositoryException("Error " + response.getStatusCode() + " contacting repo at url " + repoAccess.getUrl().toString());
         }
 
-        restUtil.logRateLimitHeaders(response.getHeaders(), "X-RateLimit");
-
-        try {
-            JsonNode root = mapper.readTree(response.getBody());
-            log.debug("response json: {}", root);
-
-            /*
-             * parse the query results, extracting the document title,
-             * authors, online url and all the other important metadata
-             */
-            ScopusResultsTranslator resultTranslator = new ScopusResultsTranslator(groupName, root, repoAccess);
-            return resultTranslator.translate();
-        } catch (JsonProcessingException e) {
-            throw new CannotContactRepositoryException("cannot parse json response", e);
-        }
+        return response.getBody();
     }
 
     @Override
     public String getQueryAsString(DocumentRepositoryQuery query, int pageLimit) {
-        ScopusQueryTranslator repoQuery = new ScopusQueryTranslator(query);
-        return repoQuery.toString();
+        ScopusQueryTranslator repoQuery = new ScopusQueryTranslator(query, pageLimit);
+        return repoQuery.toString() + "&cursor=" + repoQuery.getCursor();
     }
 
     private class ScopusQueryTranslator {
         private DocumentRepositoryQuery predicate;
+        private Integer pageLimit;
 
-        public ScopusQueryTranslator(DocumentRepositoryQuery predicate) {
+        public ScopusQueryTranslator(DocumentRepositoryQuery predicate, Integer pageLimit) {
             this.predicate = predicate;
+            this.pageLimit = pageLimit;
         }
 
         public String toString() {
             StringBuilder s = new StringBuilder();
-            s.append("start=");
-            s.append(predicate.getPaginationRecordOffset());
+            s.append("count=");
+            s.append(pageLimit != null ? pageLimit : count);
             s.append("&");
 
             s.append("query=(");
@@ -137,9 +199,25 @@ public class DocumentRepositoryDriverScopus implements DocumentRepositoryDriverI
             s.append(") AND OPENACCESS(1) AND DOCTYPE(\"ar\")");
             s.append(" AND NOT LANGUAGE(\"Russian\") AND NOT LANGUAGE(\"Chinese\")");
 
+            // incremental visits only fetch the records of the years since the last visit,
+            // optionally only the ones loaded into Scopus since then
+            if (predicate.getStartDate() != null) {
+                s.append(" AND PUBYEAR > ");
+                s.append(dateUtil.getYear(predicate.getStartDate()) - 1);
+
+                if (loadDateFilter) {
+                    s.append(" AND LOAD-DATE AFT ");
+                    s.append(dateUtil.formatYyyyMmDdCompact(predicate.getStartDate()));
+                }
+            }
+
             return s.toString();
         }
 
+        public String getCursor() {
+            return predicate.getPaginationCursor() != null ? predicate.getPaginationCursor() : FIRST_PAGE_CURSOR;
+        }
+
         private String navigateConditions(KeywordDictionaryDefinition dict) {
             StringBuilder s = new StringBuilder();
 
@@ -182,9 +260,10 @@ public class DocumentRepositoryDriverScopus implements DocumentRepositoryDriverI
 
     private class ScopusResultsTranslator {
         private String groupName;
-		private JsonNode contents;
         private DocumentRepositoryAccess repositoryAccess;
 
+        private static final String[] RESULTS_PATH = { "search-results", "entry" };
+
         /*
         private static Map<String, String> doctypes = new HashMap<>() {{
             put("ar", "Article");
@@ -207,45 +286,37 @@ public class DocumentRepositoryDriverScopus implements DocumentRepositoryDriverI
         }};
         */
 
-		public ScopusResultsTranslator(String groupName, JsonNode contents, DocumentRepositoryAccess repositoryAccess) {
+		public ScopusResultsTranslator(String groupName, DocumentRepositoryAccess repositoryAccess) {
             this.groupName = groupName;
-			this.contents = contents;
             this.repositoryAccess = repositoryAccess;
 		}
 
-		private DocumentRepositoryQueryResult translate() throws CannotDecodeRepositoryResultsException {
+		private DocumentRepositoryQueryResult translate(InputStream contents)
+            throws IOException, CannotDecodeRepositoryResultsException {
             DocumentRepositoryQueryResult results = new DocumentRepositoryQueryResult();
 
-            // translate result records
-            JsonNode resultsNode = contents.get("search-results");
-            if (resultsNode == null) {
-                throw new CannotDecodeRepositoryResultsException("missing required node \"search-results\" in response");
-            }
-                
-            if (!resultsNode.isObject()) {
-                throw new CannotDecodeRepositoryResultsException("\"search-results\" node is not an object");
-            }
-
-            JsonNode entryNode = resultsNode.get("entry");
-            if (entryNode != null) {
-                if (!entryNode.isArray()) {
-                    throw new CannotDecodeRepositoryResultsException("\"entry\" node is not an object");
+            // translate result records, one at a time
+            int found = jsonRecordReader.readRecords(contents, RESULTS_PATH, (docRecord, rawRecord) -> {
+                if (docRecord.get("error") == null) {
+                    results.getRecordList().add(
+                        translateRecord(docRecord, rawRecord)
+                    );
                 }
-
-                for (JsonNode docRecord : entryNode) {
-                    if (docRecord.get("error") == null) {
-
-                        results.getRecordList().add(
-                            translateRecord(docRecord)
-                        );
-                    }
+            }, (name, value) -> {
+                if (name.equals("cursor")) {
+                    JsonNode nextCursor = value.get("@next");
+                    results.setNextPaginationCursor(
+                        nextCursor != null && nextCursor.isTextual() ? nextCursor.asText() : null);
                 }
+            });
+            if (found == 0) {
+                throw new CannotDecodeRepositoryResultsException("missing required node \"search-results\" in response");
             }
-   
+
             return results;
 		}
 
-        private DocumentCommonAttributes translateRecord(JsonNode record) throws CannotDecodeRepositoryResultsException {
+        private DocumentCommonAttributes translateRecord(JsonNode record, String rawRecord) throws CannotDecodeRepositoryResultsException {
             try {
                 String id = jsonUtil.getStringNodeValue(record, "dc:identifier", true);
                 String doi = jsonUtil.getStringNodeValue(record, "prism:doi", false);
@@ -301,7 +372,7 @@ public class DocumentRepositoryDriverScopus implements DocumentRepositoryDriverI
                         .journalIssns(issns)
                         .journalImpactFactor(null)
                         .build())
-                    .rawSearchResultRecord(record.toString())
+                    .rawSearchResultRecord(rawRecord)
                     .build();
                 return docRecord;
             } catch (UnexpectedJsonStructureException e) {
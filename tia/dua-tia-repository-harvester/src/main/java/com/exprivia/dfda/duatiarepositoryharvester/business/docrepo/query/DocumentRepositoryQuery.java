@@ -20,4 +20,6 @@ public class DocumentRepositoryQuery {
 
     private Integer paginationPageNumber;
     private Integer paginationRecordOffset;
+    // opaque position returned by the repository, for drivers with cursor based pagination
+    private String paginationCursor;
 }
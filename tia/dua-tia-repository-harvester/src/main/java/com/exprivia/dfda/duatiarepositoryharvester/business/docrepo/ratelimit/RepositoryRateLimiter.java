@@ -0,0 +1,137 @@
+package com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * token bucket limiting the requests sent to a document repository.
+ *
+ * Tokens are refilled at the configured rate up to the bucket capacity,
+ * a request waits until a token is available; concurrent callers are
+ * served in arrival order.
+ *
+ * The rate adapts to the quota reported by the repository: the requests run
+ * at the configured rate while the remaining quota is above the reserve, then
+ * they are spread until the quota reset, and they are suspended when the quota
+ * is exhausted or the repository asks to retry later. No tokens are gained
+ * while suspended, so that the requests resume at the configured pace
+ * instead of all together.
+ */
+@Slf4j
+public class RepositoryRateLimiter {
+    private final String name;
+    private final double capacity;
+    private final double maxNanosPerToken;
+    private final long quotaReserve;
+    private final LongSupplier nanoClock;
+
+    private double nanosPerToken;
+    private double tokens;
+    private long lastRefill;
+    private long blockedUntil;
+
+    public RepositoryRateLimiter(String name, double requestsPerSecond, double capacity, long quotaReserve) {
+        this(name, requestsPerSecond, capacity, quotaReserve, System::nanoTime);
+    }
+
+    RepositoryRateLimiter(String name, double requestsPerSecond, double capacity, long quotaReserve, LongSupplier nanoClock) {
+        if (requestsPerSecond <= 0) {
+            throw new IllegalArgumentException("rate limit of " + name + " shall be positive: " + requestsPerSecond);
+        }
+        this.name = name;
+        this.capacity = Math.max(1, capacity);
+        this.maxNanosPerToken = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+        this.quotaReserve = quotaReserve;
+        this.nanoClock = nanoClock;
+        this.nanosPerToken = maxNanosPerToken;
+        this.tokens = this.capacity;
+        this.lastRefill = nanoClock.getAsLong();
+        this.blockedUntil = lastRefill;
+    }
+
+    /**
+     * wait until a request can be sent to the repository
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            log.debug("rate limit of {} reached, waiting {} ms", name, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * reserve a token, even when not yet available, so that the
+     * following callers queue up after this one
+     * @return the time to wait before sending the request, in nanoseconds
+     */
+    synchronized long reserve() {
+        refill();
+        // the tokens missing are refilled only after the suspension
+        long waitNanos = Math.max(0, blockedUntil - lastRefill);
+        if (tokens < 1) {
+            waitNanos += (long) ((1 - tokens) * nanosPerToken);
+        }
+        tokens -= 1;
+        return waitNanos;
+    }
+
+    /**
+     * adapt the request rate to the quota left
+     * @param remaining requests left in the current quota window
+     * @param untilReset time left before the quota reset, null if unknown
+     */
+    public synchronized void updateQuota(long remaining, Duration untilReset) {
+        refill();
+
+        double previousNanosPerToken = nanosPerToken;
+        if (remaining <= 0) {
+            suspend(untilReset != null ? untilReset : Duration.ofMinutes(1));
+            nanosPerToken = maxNanosPerToken;
+        } else if (remaining < quotaReserve && untilReset != null) {
+            nanosPerToken = Math.max(maxNanosPerToken, (double) untilReset.toNanos() / remaining);
+        } else {
+            nanosPerToken = maxNanosPerToken;
+        }
+
+        if (nanosPerToken != previousNanosPerToken) {
+            log.info("rate limit of {} set to {} requests per second, {} requests left",
+                name, String.format("%.3f", getRequestsPerSecond()), remaining);
+        }
+    }
+
+    /**
+     * suspend the requests for the given time, e.g. as asked by a Retry-After header
+     */
+    public synchronized void suspend(Duration duration) {
+        refill();
+        long until = lastRefill + duration.toNanos();
+        if (until > blockedUntil) {
+            log.warn("requests to {} suspended for {} seconds", name, duration.toSeconds());
+            blockedUntil = until;
+            // the saved tokens would be spent all together on resume
+            tokens = Math.min(tokens, 1);
+        }
+    }
+
+    public synchronized double getRequestsPerSecond() {
+        return TimeUnit.SECONDS.toNanos(1) / nanosPerToken;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        // no tokens are gained while suspended
+        long from = Math.max(lastRefill, blockedUntil);
+        if (now > from) {
+            tokens = Math.min(capacity, tokens + (now - from) / nanosPerToken);
+        }
+        lastRefill = now;
+    }
+}
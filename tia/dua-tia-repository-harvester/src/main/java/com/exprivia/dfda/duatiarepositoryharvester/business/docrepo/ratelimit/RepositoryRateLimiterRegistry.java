@@ -0,0 +1,37 @@
+package com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.ratelimit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.DocumentRepositoryAccess;
+import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.driver.DocumentRepositoryDriverInterface;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * keeps a rate limiter for each document repository API.
+ *
+ * Quotas are granted per API endpoint, so all the repository configurations
+ * and the missions querying the same driver on the same host share the limiter.
+ */
+@Component
+@Slf4j
+public class RepositoryRateLimiterRegistry {
+    @Value("${dua.tia.repositoryharvester.rate-limit.quota-reserve}")
+    private long quotaReserve;
+
+    private final Map<String, RepositoryRateLimiter> rateLimiters = new ConcurrentHashMap<>();
+
+    public RepositoryRateLimiter getRateLimiter(DocumentRepositoryDriverInterface driver, DocumentRepositoryAccess repoAccess) {
+        String key = driver.getDriverName() + "@" + repoAccess.getUrl().getHost();
+
+        return rateLimiters.computeIfAbsent(key, k -> {
+            double rate = driver.getMaxRequestsPerSecond();
+            log.info("rate limit for {} set to {} requests per second", k, rate);
+            return new RepositoryRateLimiter(k, rate, rate, quotaReserve);
+        });
+    }
+}
@@ -10,4 +10,7 @@ import lombok.Data;
 @Data
 public class DocumentRepositoryQueryResult {
     private List<DocumentCommonAttributes> recordList = new ArrayList<>();
+
+    // cursor of the next page, for drivers with cursor based pagination
+    private String nextPaginationCursor;
 }
@@ -1,19 +1,35 @@
 package com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.util;
 
 import java.text.SimpleDateFormat;
+import java.util.Calendar;
 import java.util.Date;
 
 import org.springframework.stereotype.Component;
 
 @Component
 public class DateUtil {
-    private SimpleDateFormat sdfYyyyMmDd = new SimpleDateFormat("yyyy-MM-dd");
+    // SimpleDateFormat is not thread safe, each harvesting thread gets its own
+    private ThreadLocal<SimpleDateFormat> sdfYyyyMmDd = ThreadLocal.withInitial(() -> new SimpleDateFormat("yyyy-MM-dd"));
+    private ThreadLocal<SimpleDateFormat> sdfYyyyMmDdCompact = ThreadLocal.withInitial(() -> new SimpleDateFormat("yyyyMMdd"));
 
     public String formatYyyyMmDd(Date date) {
         if (date == null)
             return "null";
         else
-            return sdfYyyyMmDd.format(date);
+            return sdfYyyyMmDd.get().format(date);
+    }
+
+    public String formatYyyyMmDdCompact(Date date) {
+        if (date == null)
+            return "null";
+        else
+            return sdfYyyyMmDdCompact.get().format(date);
+    }
+
+    public int getYear(Date date) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(date);
+        return cal.get(Calendar.YEAR);
     }
 
 }
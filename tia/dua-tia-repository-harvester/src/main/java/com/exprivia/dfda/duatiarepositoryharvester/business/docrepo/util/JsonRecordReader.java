@@ -0,0 +1,217 @@
+package com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestClientException;
+
+import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.exceptions.CannotDecodeRepositoryResultsException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * reads the records of a repository results page one at a time,
+ * directly from the response stream, so that the memory needed
+ * is bounded by the largest record rather than by the whole page
+ */
+@Component
+public class JsonRecordReader {
+    @Autowired
+    private ObjectMapper mapper;
+
+    @FunctionalInterface
+    public interface RecordHandler {
+        /**
+         * @param record the parsed record
+         * @param rawRecord the record text as found in the response
+         */
+        void accept(JsonNode record, String rawRecord) throws CannotDecodeRepositoryResultsException;
+    }
+
+    @FunctionalInterface
+    public interface FieldHandler {
+        /**
+         * @param name the name of a field lying beside the path to the records
+         * @param value the parsed field value
+         */
+        void accept(String name, JsonNode value);
+    }
+
+    @FunctionalInterface
+    public interface BodyTranslator<T> {
+        T translate(InputStream body) throws IOException, CannotDecodeRepositoryResultsException;
+    }
+
+    /**
+     * response extractor translating the body of a successful response while it is received;
+     * decoding errors are reported by the rest template as RestClientException,
+     * see getDecodingFailure()
+     */
+    public <T> ResponseExtractor<ResponseEntity<T>> responseExtractor(BodyTranslator<T> translator) {
+        return response -> {
+            if (!HttpStatus.OK.equals(response.getStatusCode())) {
+                return new ResponseEntity<>(response.getHeaders(), response.getStatusCode());
+            }
+            try {
+                T body = translator.translate(response.getBody());
+                return new ResponseEntity<>(body, response.getHeaders(), response.getStatusCode());
+            } catch (CannotDecodeRepositoryResultsException e) {
+                throw new DecodingFailureException(e);
+            }
+        };
+    }
+
+    /**
+     * @return the decoding error raised by a responseExtractor(), null if the exception has another cause
+     */
+    public static CannotDecodeRepositoryResultsException getDecodingFailure(RestClientException e) {
+        if (e.getCause() instanceof DecodingFailureException) {
+            return (CannotDecodeRepositoryResultsException) e.getCause().getCause();
+        }
+        return null;
+    }
+
+    /**
+     * pass to the handler each element of the array found at the given path of nested objects
+     * @param path field names leading from the root object to the records array
+     * @return the number of path elements found, path.length when the records array is found
+     */
+    public int readRecords(InputStream in, String[] path, RecordHandler handler)
+        throws IOException, CannotDecodeRepositoryResultsException {
+        return readRecords(in, path, handler, null);
+    }
+
+    /**
+     * as readRecords(), also passing to the field handler the other fields
+     * of the objects along the path, e.g. the paging metadata
+     */
+    public int readRecords(InputStream in, String[] path, RecordHandler handler, FieldHandler fieldHandler)
+        throws IOException, CannotDecodeRepositoryResultsException {
+
+        RecordCapturingInputStream capture = new RecordCapturingInputStream(in);
+
+        try (JsonParser parser = mapper.getFactory().createParser(capture)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new CannotDecodeRepositoryResultsException("response is not a json object");
+            }
+
+            for (int depth = 0; depth < path.length; depth++) {
+                if (!moveToField(parser, path[depth], fieldHandler)) {
+                    return depth;
+                }
+
+                JsonToken token = parser.nextToken();
+                boolean last = depth == path.length - 1;
+                if (token == JsonToken.VALUE_NULL) {
+                    return depth;
+                }
+                if (last && token != JsonToken.START_ARRAY) {
+                    throw new CannotDecodeRepositoryResultsException("\"" + path[depth] + "\" node is not an array");
+                }
+                if (!last && token != JsonToken.START_OBJECT) {
+                    throw new CannotDecodeRepositoryResultsException("\"" + path[depth] + "\" node is not an object");
+                }
+            }
+
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                long recordStart = parser.currentTokenLocation().getByteOffset();
+                capture.discardBefore(recordStart);
+
+                JsonNode record = parser.readValueAsTree();
+                long recordEnd = parser.currentTokenLocation().getByteOffset() + 1;
+
+                handler.accept(record, capture.slice(recordStart, recordEnd));
+            }
+
+            // fields following the records array
+            if (fieldHandler != null) {
+                moveToField(parser, null, fieldHandler);
+            }
+
+            return path.length;
+        }
+    }
+
+    private static boolean moveToField(JsonParser parser, String name, FieldHandler fieldHandler) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            if (fieldName.equals(name)) {
+                return true;
+            }
+            parser.nextToken();
+            if (fieldHandler != null) {
+                fieldHandler.accept(fieldName, parser.readValueAsTree());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return false;
+    }
+
+    private static class DecodingFailureException extends IOException {
+        DecodingFailureException(CannotDecodeRepositoryResultsException cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * keeps the bytes read by the parser from the beginning of the current record,
+     * including the parser read-ahead
+     */
+    private static class RecordCapturingInputStream extends FilterInputStream {
+        private byte[] buffer = new byte[16384];
+        private int length = 0;
+        private long bufferOffset = 0;
+
+        RecordCapturingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                append(new byte[] { (byte) b }, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = super.read(b, off, len);
+            if (count > 0) {
+                append(b, off, count);
+            }
+            return count;
+        }
+
+        void discardBefore(long offset) {
+            int discarded = (int) Math.min(length, Math.max(0, offset - bufferOffset));
+            System.arraycopy(buffer, discarded, buffer, 0, length - discarded);
+            length -= discarded;
+            bufferOffset += discarded;
+        }
+
+        String slice(long from, long to) {
+            return new String(buffer, (int) (from - bufferOffset), (int) (to - from), StandardCharsets.UTF_8);
+        }
+
+        private void append(byte[] b, int off, int len) {
+            if (length + len > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + len));
+            }
+            System.arraycopy(b, off, buffer, length, len);
+            length += len;
+        }
+    }
+}
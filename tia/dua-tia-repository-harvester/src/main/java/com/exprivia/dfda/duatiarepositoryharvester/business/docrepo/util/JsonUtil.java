@@ -15,10 +15,11 @@ import org.springframework.stereotype.Component;
 @Component
 public class JsonUtil {
 
-    private List<SimpleDateFormat> dateFormatters = Arrays.asList(
+    // SimpleDateFormat is not thread safe, each harvesting thread gets its own
+    private ThreadLocal<List<SimpleDateFormat>> dateFormatters = ThreadLocal.withInitial(() -> Arrays.asList(
         new SimpleDateFormat("yyyy/MM/dd"),
         new SimpleDateFormat("yyyy-MM-dd")
-        );
+        ));
 
     public JsonNode getSubNode(JsonNode node, String name, boolean required) throws UnexpectedJsonStructureException {
         if (node == null) throw new UnexpectedJsonStructureException("current node is null while searching node \"" + name + "\"");
@@ -84,7 +85,7 @@ public class JsonUtil {
         String strValue = getStringNodeValue(node, name, required);
         if (strValue == null) return null;
 
-        for (SimpleDateFormat sdf : dateFormatters) {
+        for (SimpleDateFormat sdf : dateFormatters.get()) {
             try {
                 return sdf.parse(strValue);
             } catch (ParseException e) {
@@ -1,14 +1,111 @@
 package com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.util;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.ratelimit.RepositoryRateLimiter;
+
 import lombok.extern.slf4j.Slf4j;
 
 @Component
 @Slf4j
 public class RestUtil {
+    private static final String[] REMAINING_HEADERS = { "X-RateLimit-Remaining", "RateLimit-Remaining" };
+    private static final String[] RESET_HEADERS = { "X-RateLimit-Reset", "RateLimit-Reset" };
+
+    // reset values above this are epoch seconds (Scopus), below are seconds from now
+    private static final long EPOCH_SECONDS_THRESHOLD = 1_000_000_000L;
+
+    @Value("${dua.tia.repositoryharvester.rate-limit.max-retries}")
+    private int maxRetries;
+
+    @Autowired
+    private CloseableHttpClient httpClient;
+
+    @FunctionalInterface
+    public interface RestCall<T> {
+        ResponseEntity<T> execute() throws RestClientException;
+    }
+
+    /**
+     * create a rest template on top of the shared, pooled http client
+     * @param readTimeout maximum waiting time for the response data, in seconds
+     */
+    public RestTemplate createRestTemplate(int readTimeout) {
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofSeconds(readTimeout));
+        return new RestTemplate(requestFactory);
+    }
+
+    /**
+     * send a request to a repository under its rate limit, reporting the
+     * quota headers of the response to the limiter; on 429 the request is
+     * sent again after the time asked by the repository
+     */
+    public <T> ResponseEntity<T> exchange(RepositoryRateLimiter rateLimiter, RestCall<T> call)
+        throws RestClientException, InterruptedException {
+
+        for (int attempt = 0; ; attempt++) {
+            rateLimiter.acquire();
+            try {
+                ResponseEntity<T> response = call.execute();
+                reportRateLimitHeaders(rateLimiter, response.getHeaders());
+                return response;
+            } catch (HttpClientErrorException.TooManyRequests e) {
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+
+                HttpHeaders headers = e.getResponseHeaders() != null ? e.getResponseHeaders() : new HttpHeaders();
+                Duration retryAfter = getRetryAfter(headers);
+                if (retryAfter == null) {
+                    retryAfter = Duration.ofSeconds(1L << Math.min(attempt + 2, 8));
+                }
+                log.warn("too many requests to {}, retrying in {} seconds", rateLimiter.getName(), retryAfter.toSeconds());
+
+                reportRateLimitHeaders(rateLimiter, headers);
+                rateLimiter.suspend(retryAfter);
+            }
+        }
+    }
 
-public void logRateLimitHeaders(HttpHeaders headers, String prefix) {
+    public void reportRateLimitHeaders(RepositoryRateLimiter rateLimiter, HttpHeaders headers) {
+        logRateLimitHeaders(headers, "X-RateLimit");
+
+        Long remaining = getLongHeader(headers, REMAINING_HEADERS);
+        if (remaining == null) {
+            return;
+        }
+
+        Duration untilReset = null;
+        Long reset = getLongHeader(headers, RESET_HEADERS);
+        if (reset != null) {
+            untilReset = reset > EPOCH_SECONDS_THRESHOLD ?
+                Duration.between(Instant.now(), Instant.ofEpochSecond(reset)) :
+                Duration.ofSeconds(reset);
+            if (untilReset.isNegative()) {
+                untilReset = Duration.ZERO;
+            }
+        }
+
+        rateLimiter.updateQuota(remaining, untilReset);
+    }
+
+    public void logRateLimitHeaders(HttpHeaders headers, String prefix) {
         // print response headers containing request ratio information
         for (String headerKey : headers.keySet()) {
             for (String value : headers.getValuesAsList(headerKey)) {
@@ -18,4 +115,39 @@ public void logRateLimitHeaders(HttpHeaders headers, String prefix) {
             }
         }
     }
+
+    private static Duration getRetryAfter(HttpHeaders headers) {
+        String value = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null) {
+            return null;
+        }
+
+        // either delay seconds or http date
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                Duration delay = Duration.between(Instant.now(), date.toInstant());
+                return delay.isNegative() ? Duration.ZERO : delay;
+            } catch (DateTimeParseException e2) {
+                log.warn("cannot decode Retry-After header: {}", value);
+                return null;
+            }
+        }
+    }
+
+    private static Long getLongHeader(HttpHeaders headers, String[] names) {
+        for (String name : names) {
+            String value = headers.getFirst(name);
+            if (value != null) {
+                try {
+                    return Long.parseLong(value.trim());
+                } catch (NumberFormatException e) {
+                    log.debug("cannot decode header {}: {}", name, value);
+                }
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,22 @@
+package com.exprivia.dfda.tia.service;
+
+import com.exprivia.dfda.tia.model.DocumentCommonAttributes;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * document event popped from the queue, together with the raw payload
+ * needed to give it back and, in RELIABLE mode, the unique id needed
+ * to acknowledge it
+ */
+@Data
+@AllArgsConstructor
+public class DocumentQueueMessage {
+    // null if not RELIABLE mode
+    private String inFlightId;
+
+    private String payload;
+
+    private DocumentCommonAttributes document;
+}
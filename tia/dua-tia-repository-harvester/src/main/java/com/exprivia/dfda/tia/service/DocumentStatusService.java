@@ -1,6 +1,22 @@
 package com.exprivia.dfda.tia.service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.convert.Bucket;
+import org.springframework.data.redis.core.convert.RedisConverter;
+import org.springframework.data.redis.core.convert.RedisData;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Service;
 
 import com.exprivia.dfda.tia.model.DocumentStatus;
@@ -11,16 +27,37 @@ import lombok.extern.slf4j.Slf4j;
 @Service
 @Slf4j
 public class DocumentStatusService {
+    // channel notified with the id of each document that will not be downloaded again
+    public static final String DOCUMENT_DONE_CHANNEL = "document-status-done";
+
     @Autowired
     private DocumentStatusRepository repository;
 
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private RedisConverter redisConverter;
+
     public void saveEntity(DocumentStatus entity) {
+        entity.updateState();
         repository.save(entity);
         if (log.isDebugEnabled()) {
             log.debug("REDIS: saved entity {}: {}", entity.getId(), entity);
         } else {
             log.info("REDIS: saved entity {}", entity.getId());
         }
+
+        if (isDone(entity)) {
+            redisTemplate.convertAndSend(DOCUMENT_DONE_CHANNEL, entity.getId());
+        }
+    }
+
+    /**
+     * @return true if the document has been downloaded or has no retries left
+     */
+    public static boolean isDone(DocumentStatus entity) {
+        return entity.isCompleted() || entity.getRetryCount() <= 0;
     }
 
     public DocumentStatus getEntity(String group, String repo, String mission, String id) {
@@ -35,4 +72,146 @@ public class DocumentStatusService {
 
         return ds;
     }
+
+    /**
+     * fetch the status of several documents with a single pipelined round trip
+     * @return the status of the documents found, by document id (not the status id)
+     */
+    public Map<String, DocumentStatus> getEntities(String group, String repo, String mission, List<String> ids) {
+        Map<String, DocumentStatus> entities = new HashMap<>();
+        if (ids.isEmpty()) {
+            return entities;
+        }
+
+        String keySpace = getKeySpace();
+
+        List<String> statusIds = ids.stream()
+            .map(id -> DocumentStatus.getId(group, repo, mission, id))
+            .toList();
+        List<DocumentStatus> statuses = readEntities(keySpace, statusIds);
+
+        for (int i = 0; i < ids.size(); i++) {
+            if (statuses.get(i) != null) {
+                entities.put(ids.get(i), statuses.get(i));
+            }
+        }
+
+        log.debug("REDIS: fetched {} entities out of {}", entities.size(), ids.size());
+
+        return entities;
+    }
+
+    /**
+     * scan all the document statuses, in batches read with a single round trip
+     * @param consumer receives the id of each document downloaded or with no retries left
+     * @return the number of statuses scanned
+     */
+    public long scanDoneEntityIds(int batchSize, Consumer<String> consumer) {
+        // the keyspace set holds the ids of all the entities
+        return scanSet(getKeySpace(), batchSize, status -> {
+            if (isDone(status)) {
+                consumer.accept(status.getId());
+            }
+        });
+    }
+
+    /**
+     * scan the document statuses in the given state, or all of them if state is null,
+     * in batches read with a single round trip
+     * @return the number of statuses scanned
+     */
+    public long scanEntities(DocumentStatus.State state, int batchSize, Consumer<DocumentStatus> consumer) {
+        return state == null ?
+            scanEntities(null, null, batchSize, consumer) :
+            scanEntities("state", state.name(), batchSize, consumer);
+    }
+
+    /**
+     * scan the document statuses having the given value of an indexed property,
+     * or all of them if the property is null, in batches read with a single round trip
+     * @return the number of statuses scanned
+     */
+    public long scanEntities(String indexedProperty, String value, int batchSize, Consumer<DocumentStatus> consumer) {
+        String keySpace = getKeySpace();
+        String setKey = indexedProperty == null ? keySpace : keySpace + ":" + indexedProperty + ":" + value;
+
+        return scanSet(setKey, batchSize, consumer);
+    }
+
+    /**
+     * save again all the document statuses, to index the ones saved before the indexes were introduced
+     * @return the number of statuses saved
+     */
+    public long rebuildIndexes(int batchSize) {
+        return scanEntities(null, batchSize, status -> {
+            status.updateState();
+            repository.save(status);
+        });
+    }
+
+    private long scanSet(String setKey, int batchSize, Consumer<DocumentStatus> consumer) {
+        String keySpace = getKeySpace();
+        long scanned = 0;
+
+        // the set elements are scanned in pages, so that the set can be changed meanwhile
+        try (Cursor<String> cursor = redisTemplate.opsForSet().scan(setKey, ScanOptions.scanOptions().count(batchSize).build())) {
+            List<String> batch = new ArrayList<>(batchSize);
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= batchSize || !cursor.hasNext()) {
+                    for (DocumentStatus status : readEntities(keySpace, batch)) {
+                        if (status != null) {
+                            consumer.accept(status);
+                        }
+                    }
+                    scanned += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+
+        log.info("REDIS: scanned {} entities of {}", scanned, setKey);
+
+        return scanned;
+    }
+
+    private String getKeySpace() {
+        return redisConverter.getMappingContext()
+            .getRequiredPersistentEntity(DocumentStatus.class)
+            .getKeySpace();
+    }
+
+    /**
+     * read several entities with a single pipelined round trip
+     * @return the entities in the order of the ids, null where not found
+     */
+    private List<DocumentStatus> readEntities(String keySpace, List<String> statusIds) {
+        List<Object> hashes = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            hGetAll(connection, keySpace, statusIds);
+            return null;
+        }, RedisSerializer.byteArray());
+
+        List<DocumentStatus> entities = new ArrayList<>(statusIds.size());
+        for (int i = 0; i < statusIds.size(); i++) {
+            @SuppressWarnings("unchecked")
+            Map<byte[], byte[]> hash = (Map<byte[], byte[]>) hashes.get(i);
+            if (hash == null || hash.isEmpty()) {
+                entities.add(null);
+                continue;
+            }
+
+            RedisData data = new RedisData(Bucket.newBucketFromRawMap(hash));
+            data.setId(statusIds.get(i));
+            data.setKeyspace(keySpace);
+            entities.add(redisConverter.read(DocumentStatus.class, data));
+        }
+        return entities;
+    }
+
+    private static void hGetAll(RedisConnection connection, String keySpace, List<String> statusIds) {
+        for (String statusId : statusIds) {
+            String key = keySpace + ":" + statusId;
+            connection.hashCommands().hGetAll(key.getBytes(StandardCharsets.UTF_8));
+        }
+    }
 }
@@ -0,0 +1,161 @@
+package com.exprivia.dfda.duatiarepositoryharvester;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+
+class ConfigurationManagerCacheTest {
+	private static final long TTL = 60_000;
+	private static final long MAX_STALE = 600_000;
+
+	private final AtomicLong clock = new AtomicLong(1_000_000);
+
+	private final ConfigurationManagerCache<String> cache = new ConfigurationManagerCache<>("test", 2, TTL, MAX_STALE, clock::get);
+
+	/**
+	 * records the ETags sent and answers with the next prepared response
+	 */
+	private static class TestLoader implements ConfigurationManagerCache.Loader<String> {
+		private final List<String> sentEtags = new ArrayList<>();
+		private final List<Object> responses = new ArrayList<>();
+
+		TestLoader ok(String body, String etag) {
+			HttpHeaders headers = new HttpHeaders();
+			headers.setETag(etag);
+			responses.add(new ResponseEntity<>(body, headers, HttpStatus.OK));
+			return this;
+		}
+
+		TestLoader notModified() {
+			responses.add(new ResponseEntity<String>(HttpStatus.NOT_MODIFIED));
+			return this;
+		}
+
+		TestLoader failure(RestClientException e) {
+			responses.add(e);
+			return this;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public ResponseEntity<String> load(String etag) throws RestClientException {
+			sentEtags.add(etag);
+			Object response = responses.remove(0);
+			if (response instanceof RestClientException) {
+				throw (RestClientException) response;
+			}
+			return (ResponseEntity<String>) response;
+		}
+	}
+
+	@Test
+	void freshEntryIsNotRevalidated() {
+		TestLoader loader = new TestLoader().ok("value", "W/\"entity-1\"");
+
+		assertEquals("value", cache.get("key", 1, loader));
+		clock.addAndGet(TTL - 1);
+		assertEquals("value", cache.get("key", 1, loader));
+
+		assertEquals(1, loader.sentEtags.size());
+		assertNull(loader.sentEtags.get(0));
+	}
+
+	@Test
+	void expiredEntryIsRevalidatedWithItsTag() {
+		TestLoader loader = new TestLoader().ok("value", "W/\"entity-1\"").notModified();
+
+		cache.get("key", 1, loader);
+		clock.addAndGet(TTL);
+		assertEquals("value", cache.get("key", 1, loader));
+		assertEquals("W/\"entity-1\"", loader.sentEtags.get(1));
+
+		// the not modified response renews the ttl
+		clock.addAndGet(TTL - 1);
+		assertEquals("value", cache.get("key", 1, loader));
+		assertEquals(2, loader.sentEtags.size());
+	}
+
+	@Test
+	void newConfigurationVersionIsRevalidated() {
+		TestLoader loader = new TestLoader().ok("value", "W/\"entity-1\"").ok("changed", "W/\"entity-2\"").notModified();
+
+		cache.get("key", 1, loader);
+		assertEquals("changed", cache.get("key", 2, loader));
+		assertEquals("W/\"entity-1\"", loader.sentEtags.get(1));
+
+		// revalidated with the tag of the changed value
+		assertEquals("changed", cache.get("key", 3, loader));
+		assertEquals("W/\"entity-2\"", loader.sentEtags.get(2));
+	}
+
+	@Test
+	void staleEntryUsedWhileTheConfigurationManagerIsDown() {
+		TestLoader loader = new TestLoader()
+			.ok("value", "W/\"entity-1\"")
+			.failure(new ResourceAccessException("connection refused"))
+			.failure(new ResourceAccessException("connection refused"));
+
+		cache.get("key", 1, loader);
+
+		clock.addAndGet(TTL + MAX_STALE - 1);
+		assertEquals("value", cache.get("key", 1, loader));
+
+		clock.addAndGet(1);
+		assertThrows(ResourceAccessException.class, () -> cache.get("key", 1, loader));
+	}
+
+	@Test
+	void clientErrorEvictsTheEntry() {
+		TestLoader loader = new TestLoader()
+			.ok("value", "W/\"entity-1\"")
+			.failure(new HttpClientErrorException(HttpStatus.NOT_FOUND))
+			.ok("created again", "W/\"entity-3\"");
+
+		cache.get("key", 1, loader);
+		assertThrows(HttpClientErrorException.class, () -> cache.get("key", 2, loader));
+
+		// loaded without a tag, the deleted value is not used anymore
+		assertEquals("created again", cache.get("key", 2, loader));
+		assertNull(loader.sentEtags.get(2));
+	}
+
+	@Test
+	void leastRecentlyUsedEntryIsEvicted() {
+		TestLoader loader = new TestLoader().ok("a", "W/\"a\"").ok("b", "W/\"b\"").ok("c", "W/\"c\"").ok("b again", "W/\"b\"");
+
+		cache.get("a", 1, loader);
+		cache.get("b", 1, loader);
+		cache.get("a", 1, loader);
+		cache.get("c", 1, loader);
+
+		assertEquals("a", cache.get("a", 1, loader));
+		assertEquals("b again", cache.get("b", 1, loader));
+		assertEquals(4, loader.sentEtags.size());
+	}
+
+	@Test
+	void updatedValueReplacesTheCachedOne() {
+		TestLoader loader = new TestLoader().ok("value", "W/\"entity-1\"").ok("reloaded", "W/\"entity-2\"");
+
+		cache.get("key", 1, loader);
+		cache.put("key", "updated", 2);
+		assertEquals("updated", cache.get("key", 2, loader));
+
+		// no tag known for the updated value
+		clock.addAndGet(TTL);
+		assertEquals("reloaded", cache.get("key", 2, loader));
+		assertNull(loader.sentEtags.get(1));
+	}
+}
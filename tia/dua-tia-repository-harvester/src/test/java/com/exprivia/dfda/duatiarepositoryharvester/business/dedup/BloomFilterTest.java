@@ -0,0 +1,124 @@
+package com.exprivia.dfda.duatiarepositoryharvester.business.dedup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTest {
+	private static final int KEYS = 100_000;
+
+	private static String key(int i) {
+		return "crossref-10.1000/doc." + i;
+	}
+
+	private static double measureFalsePositiveRate(BloomFilter filter) {
+		int falsePositives = 0;
+		for (int i = KEYS; i < 2 * KEYS; i++) {
+			if (filter.mightContain(key(i))) {
+				falsePositives++;
+			}
+		}
+		return (double) falsePositives / KEYS;
+	}
+
+	@Test
+	void sizedForTheExpectedInsertions() {
+		BloomFilter filter = new BloomFilter(1_000_000, 0.01);
+
+		// about 9.6 bits and 7 hashes per key for 1%
+		long optimalBits = (long) Math.ceil(-1_000_000 * Math.log(0.01) / (Math.log(2) * Math.log(2)));
+		assertTrue(filter.getBitCount() >= optimalBits && filter.getBitCount() < optimalBits + 64);
+		assertEquals(0, filter.getBitCount() % 64);
+		assertEquals(7, filter.getHashCount());
+
+		BloomFilter stricter = new BloomFilter(1_000_000, 0.001);
+		assertTrue(stricter.getBitCount() > filter.getBitCount());
+		assertEquals(10, stricter.getHashCount());
+	}
+
+	@Test
+	void smallestFilter() {
+		BloomFilter filter = new BloomFilter(1, 0.5);
+
+		assertEquals(64, filter.getBitCount());
+		assertTrue(filter.getHashCount() >= 1);
+
+		filter.put("only");
+		assertTrue(filter.mightContain("only"));
+	}
+
+	@Test
+	void invalidSizing() {
+		assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+		assertThrows(IllegalArgumentException.class, () -> new BloomFilter(1000, 0));
+		assertThrows(IllegalArgumentException.class, () -> new BloomFilter(1000, 1));
+	}
+
+	@Test
+	void noFalseNegatives() {
+		BloomFilter filter = new BloomFilter(KEYS, 0.01);
+		assertFalse(filter.mightContain(key(0)));
+
+		for (int i = 0; i < KEYS; i++) {
+			filter.put(key(i));
+		}
+		for (int i = 0; i < KEYS; i++) {
+			assertTrue(filter.mightContain(key(i)), key(i));
+		}
+		assertEquals(KEYS, filter.getInsertions());
+	}
+
+	@Test
+	void falsePositiveRateWithinTheConfiguredOne() {
+		for (double rate : new double[] { 0.05, 0.01, 0.001 }) {
+			BloomFilter filter = new BloomFilter(KEYS, rate);
+			for (int i = 0; i < KEYS; i++) {
+				filter.put(key(i));
+			}
+
+			double measured = measureFalsePositiveRate(filter);
+			assertTrue(measured <= rate * 1.5, "false positive rate " + measured + " for " + rate);
+		}
+	}
+
+	@Test
+	void falsePositiveRateGrowsWhenOverfilled() {
+		BloomFilter filter = new BloomFilter(KEYS / 10, 0.01);
+		for (int i = 0; i < KEYS; i++) {
+			filter.put(key(i));
+		}
+
+		assertTrue(measureFalsePositiveRate(filter) > 0.1);
+	}
+
+	@Test
+	void concurrentInsertions() throws InterruptedException {
+		BloomFilter filter = new BloomFilter(KEYS, 0.01);
+		int threadCount = 4;
+
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < threadCount; t++) {
+			int first = t;
+			threads.add(new Thread(() -> {
+				for (int i = first; i < KEYS; i += threadCount) {
+					filter.put(key(i));
+				}
+			}));
+		}
+		threads.forEach(Thread::start);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		for (int i = 0; i < KEYS; i++) {
+			assertTrue(filter.mightContain(key(i)), key(i));
+		}
+		assertEquals(KEYS, filter.getInsertions());
+	}
+}
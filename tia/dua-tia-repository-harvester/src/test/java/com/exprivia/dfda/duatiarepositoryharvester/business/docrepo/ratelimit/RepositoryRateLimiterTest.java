@@ -0,0 +1,121 @@
+package com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class RepositoryRateLimiterTest {
+	private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final AtomicLong clock = new AtomicLong(1_000_000 * MILLIS);
+
+	private RepositoryRateLimiter createLimiter(double requestsPerSecond, double capacity, long quotaReserve) {
+		return new RepositoryRateLimiter("test", requestsPerSecond, capacity, quotaReserve, clock::get);
+	}
+
+	private void advance(long millis) {
+		clock.addAndGet(millis * MILLIS);
+	}
+
+	@Test
+	void burstUpToCapacityThenPaced() {
+		RepositoryRateLimiter limiter = createLimiter(10, 2, 0);
+
+		assertEquals(0, limiter.reserve());
+		assertEquals(0, limiter.reserve());
+		assertEquals(100 * MILLIS, limiter.reserve());
+		assertEquals(200 * MILLIS, limiter.reserve());
+
+		advance(200);
+		assertEquals(100 * MILLIS, limiter.reserve());
+	}
+
+	@Test
+	void tokensRefilledUpToCapacity() {
+		RepositoryRateLimiter limiter = createLimiter(10, 2, 0);
+		limiter.reserve();
+		limiter.reserve();
+
+		advance(10_000);
+		assertEquals(0, limiter.reserve());
+		assertEquals(0, limiter.reserve());
+		assertEquals(100 * MILLIS, limiter.reserve());
+	}
+
+	@Test
+	void suspendedCallersResumeAtTheConfiguredPace() {
+		RepositoryRateLimiter limiter = createLimiter(10, 5, 0);
+
+		limiter.suspend(Duration.ofSeconds(5));
+
+		// the saved tokens are not spent all together on resume
+		assertEquals(5000 * MILLIS, limiter.reserve());
+		assertEquals(5100 * MILLIS, limiter.reserve());
+		assertEquals(5200 * MILLIS, limiter.reserve());
+	}
+
+	@Test
+	void noTokensGainedWhileSuspended() {
+		RepositoryRateLimiter limiter = createLimiter(10, 5, 0);
+		for (int i = 0; i < 5; i++) {
+			limiter.reserve();
+		}
+
+		limiter.suspend(Duration.ofSeconds(5));
+		advance(4000);
+		assertEquals(1000 * MILLIS + 100 * MILLIS, limiter.reserve());
+
+		// queued after the previous caller, resuming 100 ms after the suspension
+		advance(1000);
+		assertEquals(200 * MILLIS, limiter.reserve());
+	}
+
+	@Test
+	void shorterSuspensionDoesNotShortenTheCurrentOne() {
+		RepositoryRateLimiter limiter = createLimiter(10, 1, 0);
+
+		limiter.suspend(Duration.ofSeconds(10));
+		limiter.suspend(Duration.ofSeconds(1));
+		assertEquals(10_000 * MILLIS, limiter.reserve());
+	}
+
+	@Test
+	void rateSpreadBelowTheQuotaReserve() {
+		RepositoryRateLimiter limiter = createLimiter(10, 1, 100);
+
+		limiter.updateQuota(500, Duration.ofSeconds(60));
+		assertEquals(10, limiter.getRequestsPerSecond(), 1e-9);
+
+		limiter.updateQuota(50, Duration.ofSeconds(100));
+		assertEquals(0.5, limiter.getRequestsPerSecond(), 1e-9);
+
+		// never faster than the configured rate
+		limiter.updateQuota(50, Duration.ofSeconds(1));
+		assertEquals(10, limiter.getRequestsPerSecond(), 1e-9);
+
+		// unknown reset time
+		limiter.updateQuota(50, null);
+		assertEquals(10, limiter.getRequestsPerSecond(), 1e-9);
+	}
+
+	@Test
+	void exhaustedQuotaSuspendsUntilTheReset() {
+		RepositoryRateLimiter limiter = createLimiter(10, 1, 100);
+
+		limiter.updateQuota(0, Duration.ofSeconds(30));
+		assertEquals(30_000 * MILLIS, limiter.reserve());
+		assertEquals(30_100 * MILLIS, limiter.reserve());
+	}
+
+	@Test
+	void exhaustedQuotaWithoutResetSuspendsForOneMinute() {
+		RepositoryRateLimiter limiter = createLimiter(10, 1, 100);
+
+		limiter.updateQuota(0, null);
+		assertEquals(60_000 * MILLIS, limiter.reserve());
+	}
+}
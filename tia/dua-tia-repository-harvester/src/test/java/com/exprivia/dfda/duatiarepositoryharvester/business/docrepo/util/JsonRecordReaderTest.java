@@ -0,0 +1,140 @@
+package com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.exprivia.dfda.duatiarepositoryharvester.business.docrepo.exceptions.CannotDecodeRepositoryResultsException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class JsonRecordReaderTest {
+	private static final String[] PATH = { "message", "items" };
+
+	private final JsonRecordReader reader = createReader();
+
+	private final List<JsonNode> records = new ArrayList<>();
+	private final List<String> rawRecords = new ArrayList<>();
+	private final Map<String, JsonNode> fields = new LinkedHashMap<>();
+
+	private static JsonRecordReader createReader() {
+		JsonRecordReader reader = new JsonRecordReader();
+		ReflectionTestUtils.setField(reader, "mapper", new ObjectMapper());
+		return reader;
+	}
+
+	private int read(InputStream in) throws IOException, CannotDecodeRepositoryResultsException {
+		return reader.readRecords(in, PATH,
+			(record, rawRecord) -> {
+				records.add(record);
+				rawRecords.add(rawRecord);
+			},
+			fields::put);
+	}
+
+	private static InputStream stream(String json) {
+		return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * returns at most chunkSize bytes per read, as a slow network would
+	 */
+	private static InputStream chunkedStream(String json, int chunkSize) {
+		return new FilterInputStream(stream(json)) {
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return super.read(b, off, Math.min(len, chunkSize));
+			}
+		};
+	}
+
+	private static String page(List<String> rawRecords) {
+		return "{ \"status\": \"ok\", \"message\": { \"total-results\": " + rawRecords.size() + ",\n" +
+			"  \"items\": [\n    " + String.join(" ,\n    ", rawRecords) + "\n  ],\n" +
+			"  \"next-cursor\": \"abc\" } }";
+	}
+
+	private static String record(int i, int padding) {
+		return "{ \"DOI\": \"10.1000/" + i + "\",\n      \"title\": [ \"Éarth observation — 地球観測 " + i + "\" ],\n" +
+			"      \"abstract\": \"" + "x".repeat(padding) + "\" }";
+	}
+
+	@Test
+	void rawRecordsAreTheResponseText() throws Exception {
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			expected.add(record(i, i % 97));
+		}
+
+		assertEquals(PATH.length, read(stream(page(expected))));
+
+		assertEquals(expected, rawRecords);
+		assertEquals(500, records.size());
+		assertEquals("10.1000/499", records.get(499).get("DOI").asText());
+		assertEquals("Éarth observation — 地球観測 7", records.get(7).get("title").get(0).asText());
+	}
+
+	@Test
+	void rawRecordsAcrossReadBoundaries() throws Exception {
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			expected.add(record(i, 13 * i));
+		}
+
+		read(chunkedStream(page(expected), 7));
+
+		assertEquals(expected, rawRecords);
+	}
+
+	@Test
+	void recordsLargerThanTheCaptureBuffer() throws Exception {
+		List<String> expected = List.of(record(0, 10), record(1, 100_000), record(2, 10), record(3, 40_000));
+
+		read(chunkedStream(page(expected), 4096));
+
+		assertEquals(expected, rawRecords);
+		assertEquals(100_000, records.get(1).get("abstract").asText().length());
+	}
+
+	@Test
+	void fieldsBesideThePathArePassed() throws Exception {
+		read(stream(page(List.of(record(0, 0)))));
+
+		assertEquals("ok", fields.get("status").asText());
+		assertEquals(1, fields.get("total-results").asInt());
+		assertEquals("abc", fields.get("next-cursor").asText());
+		assertEquals(1, records.size());
+	}
+
+	@Test
+	void emptyOrMissingRecords() throws Exception {
+		assertEquals(PATH.length, read(stream("{ \"message\": { \"items\": [] } }")));
+		assertTrue(records.isEmpty());
+
+		assertEquals(1, read(stream("{ \"message\": { \"total-results\": 0 } }")));
+		assertEquals(1, read(stream("{ \"message\": { \"items\": null } }")));
+		assertEquals(0, read(stream("{ \"status\": \"failed\" }")));
+		assertEquals(0, read(stream("{ \"message\": null }")));
+		assertTrue(records.isEmpty());
+	}
+
+	@Test
+	void unexpectedStructure() {
+		assertThrows(CannotDecodeRepositoryResultsException.class, () -> read(stream("[ { \"DOI\": \"10.1000/1\" } ]")));
+		assertThrows(CannotDecodeRepositoryResultsException.class, () -> read(stream("{ \"message\": [] }")));
+		assertThrows(CannotDecodeRepositoryResultsException.class, () -> read(stream("{ \"message\": { \"items\": {} } }")));
+	}
+}
@@ -0,0 +1,110 @@
+package com.exprivia.dfda.duatiascheduler.business;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * next visit time of each enabled repository, kept in a redis sorted set
+ * scored by epoch milliseconds, so that the schedule survives the restarts
+ */
+@Component
+public class RepositorySchedule {
+    private static final String SCHEDULE_KEY = "repo-schedule";
+
+    // move a due repository forward by the lease, so that the other scheduler
+    // instances do not see it due, and it is visited again if the claimer dies
+    private static final RedisScript<Long> CLAIM_SCRIPT = new DefaultRedisScript<>(
+        "local score = redis.call('ZSCORE', KEYS[1], ARGV[1]) " +
+        "if not score or tonumber(score) > tonumber(ARGV[2]) then return 0 end " +
+        "redis.call('ZADD', KEYS[1], ARGV[3], ARGV[1]) " +
+        "return 1",
+        Long.class);
+
+    // set the next visit only if still scheduled, not to add back a repository
+    // removed from the schedule meanwhile
+    private static final RedisScript<Long> RESCHEDULE_SCRIPT = new DefaultRedisScript<>(
+        "return redis.call('ZADD', KEYS[1], 'XX', 'CH', ARGV[2], ARGV[1])",
+        Long.class);
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    /**
+     * @return the next visit time of the repository, null if not scheduled
+     */
+    public Instant getNextVisit(String repositoryId) {
+        Double score = redisTemplate.opsForZSet().score(SCHEDULE_KEY, repositoryId);
+        return score != null ? Instant.ofEpochMilli(score.longValue()) : null;
+    }
+
+    public void schedule(String repositoryId, Instant nextVisit) {
+        redisTemplate.opsForZSet().add(SCHEDULE_KEY, repositoryId, nextVisit.toEpochMilli());
+    }
+
+    /**
+     * claim a due repository, so that only one scheduler instance visits it: its next visit is
+     * moved after the lease, until rescheduled by the claimer
+     * @return false if no more due, e.g. already claimed by another instance
+     */
+    public boolean claim(String repositoryId, Instant now, Duration lease) {
+        Long claimed = redisTemplate.execute(CLAIM_SCRIPT,
+            List.of(SCHEDULE_KEY),
+            repositoryId,
+            Long.toString(now.toEpochMilli()),
+            Long.toString(now.plus(lease).toEpochMilli()));
+        return claimed != null && claimed > 0;
+    }
+
+    /**
+     * set the next visit of a claimed repository, unless removed from the schedule meanwhile
+     */
+    public void reschedule(String repositoryId, Instant nextVisit) {
+        redisTemplate.execute(RESCHEDULE_SCRIPT,
+            List.of(SCHEDULE_KEY),
+            repositoryId,
+            Long.toString(nextVisit.toEpochMilli()));
+    }
+
+    public void unschedule(String repositoryId) {
+        redisTemplate.opsForZSet().remove(SCHEDULE_KEY, repositoryId);
+    }
+
+    /**
+     * @return the ids of the repositories due at the given time
+     */
+    public Set<String> getDue(Instant now) {
+        Set<String> due = redisTemplate.opsForZSet().rangeByScore(SCHEDULE_KEY, 0, now.toEpochMilli());
+        return due != null ? due : Collections.emptySet();
+    }
+
+    /**
+     * @return the ids of all the scheduled repositories
+     */
+    public Set<String> getScheduled() {
+        Set<String> scheduled = redisTemplate.opsForZSet().range(SCHEDULE_KEY, 0, -1);
+        return scheduled != null ? scheduled : Collections.emptySet();
+    }
+
+    /**
+     * @return the earliest visit time of the schedule, null if empty
+     */
+    public Instant getEarliestVisit() {
+        ZSetOperations<String, String> zSetOps = redisTemplate.opsForZSet();
+        Set<TypedTuple<String>> first = zSetOps.rangeWithScores(SCHEDULE_KEY, 0, 0);
+        if (first == null || first.isEmpty()) {
+            return null;
+        }
+        return Instant.ofEpochMilli(first.iterator().next().getScore().longValue());
+    }
+}
@@ -1,26 +1,45 @@
 package com.exprivia.dfda.duatiascheduler.business;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Component;
 
 import com.exprivia.dfda.duatiascheduler.service.config.SchedulerConfig;
 import com.exprivia.dfda.duatiascheduler.service.config.DocumentRepositoriesConfig.DocumentRepositoriesConfigHandler;
 import com.exprivia.dfda.tia.model.DocumentRepository;
+import com.exprivia.dfda.tia.service.ConfigurationVersionService;
 import com.exprivia.dfda.tia.service.RepositoryQueueService;
 import com.exprivia.dfda.tia.service.exception.RepositoryQueueException;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.io.IOException;
-import java.sql.Timestamp;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * pushes the visit events of the enabled repositories when they are due.
+ *
+ * The next visit of each repository is kept in the persistent RepositorySchedule.
+ * The configuration is read again only when the configuration manager publishes
+ * a new version of it, and in between the scheduler sleeps until the earliest
+ * due repository. The visit times are spread with a
+ * random jitter, so that the repositories do not end up visited all at once.
+ */
 @Component
 @Slf4j
-public class Scheduler {
+public class Scheduler implements MessageListener {
 	@Autowired
 	private RepositoryQueueService repositoryService;
 
@@ -30,23 +49,71 @@ public class Scheduler {
 	@Autowired
 	private DocumentRepositoriesConfigHandler repoListHandler;
 
-	private Map<String, Instant> repositoriedLastScheduled = new HashMap<>();
+	@Autowired
+	private RepositorySchedule schedule;
+
+	@Autowired
+	private ConfigurationVersionService configurationVersionService;
+
+	@Autowired
+	private RedisMessageListenerContainer listenerContainer;
+
+	// enabled repositories, by id, as of the last configuration read
+	private Map<String, DocumentRepository> repositories = new HashMap<>();
+	private long repositoriesVersion = 0;
+	private Instant lastRefresh = null;
+
+	// released when the configuration manager publishes a change
+	private final Semaphore configurationChanged = new Semaphore(0);
+
+	@PostConstruct
+	public void initialize() {
+		listenerContainer.addMessageListener(this, new ChannelTopic(ConfigurationVersionService.CONFIGURATION_CHANGE_CHANNEL));
+	}
+
+	@Override
+	public void onMessage(Message message, byte[] pattern) {
+		log.info("configuration version {} published", new String(message.getBody(), StandardCharsets.UTF_8));
+		configurationChanged.release();
+	}
 
 	public void doWork() {
 		Integer pollingPeriod = config.getPollingPeriod();
 
 		log.info("starting repo scheduling");
 
+		Instant nextCheck = Instant.now();
 		while (true) {
+			Instant now = Instant.now();
+			if (!now.isBefore(nextCheck)) {
+				try {
+					refreshRepositoriesIfChanged(now);
+				} catch (IOException | RuntimeException e) {
+					log.error("error reading repositories configuration", e);
+				}
+				nextCheck = now.plusSeconds(pollingPeriod);
+			}
+
+			Instant wakeUp = nextCheck;
 			try {
-				processRepositories();
-			} catch (IOException e) {
-				log.error("error processing repositories", e);
+				processDueRepositories();
+
+				// repositories still due are waiting for the configuration
+				Instant earliestVisit = schedule.getEarliestVisit();
+				if (earliestVisit != null && earliestVisit.isAfter(Instant.now()) && earliestVisit.isBefore(nextCheck)) {
+					wakeUp = earliestVisit;
+				}
+			} catch (RuntimeException e) {
+				log.error("error processing repositories schedule", e);
 			}
 
-			log.info("sleeping {} seconds", pollingPeriod);
+			log.info("sleeping until {}", wakeUp);
 			try {
-				Thread.sleep(pollingPeriod * 1000);
+				long sleepMillis = Math.max(0, Duration.between(Instant.now(), wakeUp).toMillis());
+				if (configurationChanged.tryAcquire(sleepMillis, TimeUnit.MILLISECONDS)) {
+					configurationChanged.drainPermits();
+					nextCheck = Instant.now();
+				}
 			} catch (InterruptedException e) {
 				log.error("pause interrupted", e);
 				break;
@@ -55,45 +122,111 @@ public class Scheduler {
 
 	}
 
-	private void processRepositories() throws IOException {
+	/**
+	 * read the repositories configuration only if its version changed since the last read,
+	 * or if the last read is older than configuration-max-age-sec
+	 */
+	private void refreshRepositoriesIfChanged(Instant now) throws IOException {
+		long version = configurationVersionService.getVersion();
+		if (lastRefresh != null && version == repositoriesVersion &&
+			now.isBefore(lastRefresh.plusSeconds(config.getConfigurationMaxAge()))) {
+			log.info("repositories configuration version {} unchanged", version);
+			return;
+		}
+
+		refreshRepositories();
+
+		repositoriesVersion = version;
+		lastRefresh = now;
+		log.info("repositories configuration version {} loaded", version);
+	}
+
+	/**
+	 * read the repositories configuration, adding the new enabled repositories to the schedule
+	 * and removing the disabled ones
+	 */
+	private void refreshRepositories() throws IOException {
 		Instant now = Instant.now();
-		Timestamp tsNow = Timestamp.from(now);
 		List<DocumentRepository> repositoryList = repoListHandler.getRepositoriesConfiguration();
 
+		Map<String, DocumentRepository> enabledRepositories = new HashMap<>();
 		for (DocumentRepository docRepo : repositoryList) {
-
 			if (docRepo.getEnabled() == true) {
-				Instant lastScheduled = repositoriedLastScheduled.get(docRepo.getId());
-				boolean wasScheduled = lastScheduled != null;
-				Timestamp nextSchedule = Timestamp.from(
-					(lastScheduled != null ? lastScheduled : now)
-						.plusSeconds(docRepo.getFrequency()));
-
-				log.info("evaluating repo {} with lastScheduled = {}, nextSchedule = {}, now = {}", 
-					docRepo.getName(), 
-					lastScheduled,
-					nextSchedule.toInstant(), 
-					tsNow.toInstant());
-
-				if (wasScheduled == false ||
-					tsNow.after(nextSchedule)) {
-
-					log.info("processing repo {}", docRepo.getName());
-					try {
-						repositoryService.pushRepositoryEvent(docRepo);
-
-						// TODO: evaluate if it is required to persist the last succesfull visit of the repository
-						repositoriedLastScheduled.put(docRepo.getId(), now);
-					} catch (RepositoryQueueException e) {
-						log.error("cannot add repository visit to queue", e);
-					}
-				} else {
-					log.info("repo {} skipped", docRepo.getName());
-				}
+				enabledRepositories.put(docRepo.getId(), docRepo);
 			} else {
 				log.info("repository \"{}\" is disabled by configuration", docRepo.getName());
 			}
 		}
+
+		for (DocumentRepository docRepo : enabledRepositories.values()) {
+			Instant nextVisit = schedule.getNextVisit(docRepo.getId());
+			Instant latestVisit = now.plusSeconds(docRepo.getFrequency());
+
+			if (nextVisit == null) {
+				// spread the first visits, e.g. of all the repositories on the first start
+				long maxDelay = Math.min(docRepo.getFrequency(), config.getMaxInitialDelay()) * 1000L;
+				nextVisit = now.plusMillis(ThreadLocalRandom.current().nextLong(Math.max(1, maxDelay)));
+				schedule.schedule(docRepo.getId(), nextVisit);
+				log.info("repo {} scheduled for {}", docRepo.getName(), nextVisit);
+			} else if (nextVisit.isAfter(latestVisit)) {
+				// visiting period shortened since the repository was scheduled
+				schedule.schedule(docRepo.getId(), latestVisit);
+				log.info("repo {} rescheduled for {}", docRepo.getName(), latestVisit);
+			}
+		}
+
+		for (String repositoryId : schedule.getScheduled()) {
+			if (!enabledRepositories.containsKey(repositoryId)) {
+				schedule.unschedule(repositoryId);
+				log.info("repo {} removed from schedule", repositoryId);
+			}
+		}
+
+		repositories = enabledRepositories;
+	}
+
+	private void processDueRepositories() {
+		Instant now = Instant.now();
+		// a repository claimed by an instance dying before rescheduling it is visited again after the lease
+		Duration lease = Duration.ofSeconds(config.getPollingPeriod());
+
+		for (String repositoryId : schedule.getDue(now)) {
+			DocumentRepository docRepo = repositories.get(repositoryId);
+			if (docRepo == null) {
+				log.warn("repo {} is due but its configuration is not available", repositoryId);
+				continue;
+			}
+
+			if (!schedule.claim(repositoryId, now, lease)) {
+				log.info("repo {} already processed by another scheduler", docRepo.getName());
+				continue;
+			}
+
+			Instant nextVisit;
+			log.info("processing repo {}", docRepo.getName());
+			try {
+				repositoryService.pushRepositoryEvent(docRepo);
+				nextVisit = now.plusMillis(getJitteredPeriod(docRepo.getFrequency()));
+			} catch (RepositoryQueueException e) {
+				log.error("cannot add repository visit to queue", e);
+				nextVisit = now.plus(lease);
+			}
+
+			schedule.reschedule(repositoryId, nextVisit);
+			log.info("repo {} next visit at {}", docRepo.getName(), nextVisit);
+		}
+	}
+
+	/**
+	 * @return the visit period in milliseconds, randomly shifted by up to jitter-percent
+	 */
+	private long getJitteredPeriod(int frequency) {
+		long period = frequency * 1000L;
+		long jitter = period * Math.max(0, config.getJitterPercent()) / 100;
+		if (jitter == 0) {
+			return period;
+		}
+		return period + ThreadLocalRandom.current().nextLong(-jitter, jitter + 1);
 	}
 
 }
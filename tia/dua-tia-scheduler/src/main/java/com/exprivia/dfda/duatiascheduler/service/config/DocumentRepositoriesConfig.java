@@ -11,7 +11,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Configuration
 public class DocumentRepositoriesConfig {
@@ -37,11 +39,13 @@ public class DocumentRepositoriesConfig {
             List<DocumentRepository> repos = mapper.readValue(repositoriesConfigURL, new TypeReference<List<DocumentRepository>>() {});
     
             // put credentials in repositories configuration
+            Map<String, String> credentialValues = new HashMap<>();
             for (Credential credential : credentials) {
-                for (DocumentRepository repository : repos) {
-                    if (repository.getId().equals(credential.getId())) {
-                        repository.setCredentials(credential.getValue());
-                    }
+                credentialValues.put(credential.getId(), credential.getValue());
+            }
+            for (DocumentRepository repository : repos) {
+                if (credentialValues.containsKey(repository.getId())) {
+                    repository.setCredentials(credentialValues.get(repository.getId()));
                 }
             }
     
@@ -1,14 +1,45 @@
 package com.exprivia.dfda.duatiascheduler.service.config;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
 @Configuration
 public class SchedulerConfig {
     @Value("${dua.tia.scheduler.polling-period-sec}")
     private Integer pollingPeriod;
 
+    @Value("${dua.tia.scheduler.configuration-max-age-sec}")
+    private Integer configurationMaxAge;
+
+    @Value("${dua.tia.scheduler.jitter-percent}")
+    private Integer jitterPercent;
+
+    @Value("${dua.tia.scheduler.max-initial-delay-sec}")
+    private Integer maxInitialDelay;
+
     public Integer getPollingPeriod() {
         return pollingPeriod;
     }
+
+    public Integer getConfigurationMaxAge() {
+        return configurationMaxAge;
+    }
+
+    public Integer getJitterPercent() {
+        return jitterPercent;
+    }
+
+    public Integer getMaxInitialDelay() {
+        return maxInitialDelay;
+    }
+
+    @Bean
+    public RedisMessageListenerContainer getRedisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
 }
@@ -0,0 +1,25 @@
+package com.exprivia.dfda.tia.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * version of the configuration, incremented and published by the configuration manager at each change
+ */
+@Component
+public class ConfigurationVersionService {
+    public static final String CONFIGURATION_CHANGE_CHANNEL = "configuration-changes";
+    private static final String VERSION_KEY = "configuration-version";
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    /**
+     * @return the current configuration version, 0 if not yet changed
+     */
+    public long getVersion() {
+        String version = redisTemplate.opsForValue().get(VERSION_KEY);
+        return version != null ? Long.parseLong(version) : 0;
+    }
+}
@@ -1,6 +1,10 @@
 package com.exprivia.dfda.tia.service;
 
+import java.time.Duration;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ListOperations;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.SetOperations;
 import org.springframework.stereotype.Component;
@@ -16,27 +20,51 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class RepositoryQueueService {
     private static final String REPOSITORY_QUEUE_NAME = "repo";
+    private static final String REPOSITORY_LIST_QUEUE_NAME = "repo-list";
 
     @Autowired
     private RedisTemplate<String, String> redisTemplate;
 
+    @Value("${dua.tia.queue.mode}")
+    private QueueMode queueMode;
+
+    @Value("${dua.tia.queue.blocking-pop-timeout-sec}")
+    private int blockingPopTimeout;
+
     public void pushRepositoryEvent(DocumentRepository repo) throws RepositoryQueueException {
-        SetOperations<String, String> setOps = redisTemplate.opsForSet();
         ObjectMapper mapper = new ObjectMapper();
 
         try {
-            setOps.add(REPOSITORY_QUEUE_NAME, mapper.writeValueAsString(repo));
+            String value = mapper.writeValueAsString(repo);
+            if (queueMode != QueueMode.SET) {
+                ListOperations<String, String> listOps = redisTemplate.opsForList();
+                listOps.leftPush(REPOSITORY_LIST_QUEUE_NAME, value);
+            } else {
+                SetOperations<String, String> setOps = redisTemplate.opsForSet();
+                setOps.add(REPOSITORY_QUEUE_NAME, value);
+            }
             log.info("pushed repo event {}", repo);
         } catch (JsonProcessingException e) {
             throw new RepositoryQueueException("cannot push repository event", e);
         }
     }
 
+    /**
+     * pop a repository event from the queue; in LIST and RELIABLE modes the call waits
+     * up to the configured timeout for an event to be available
+     * @return the repository event or null if no event is available
+     */
     public DocumentRepository popRepositoryEvent() throws RepositoryQueueException {
-        SetOperations<String, String> setOps = redisTemplate.opsForSet();
         ObjectMapper mapper = new ObjectMapper();
 
-        String poppedData = setOps.pop(REPOSITORY_QUEUE_NAME);
+        String poppedData;
+        if (queueMode != QueueMode.SET) {
+            ListOperations<String, String> listOps = redisTemplate.opsForList();
+            poppedData = listOps.rightPop(REPOSITORY_LIST_QUEUE_NAME, Duration.ofSeconds(blockingPopTimeout));
+        } else {
+            SetOperations<String, String> setOps = redisTemplate.opsForSet();
+            poppedData = setOps.pop(REPOSITORY_QUEUE_NAME);
+        }
 
         if (poppedData == null) {
             log.info("no repo events available");
@@ -51,4 +79,12 @@ public class RepositoryQueueService {
             throw new RepositoryQueueException("cannot push repository event", e);
         }
     }
+
+    /**
+     * @return true if popRepositoryEvent() already waits for new events,
+     * so that the caller does not need to pause between empty pops
+     */
+    public boolean isBlockingPop() {
+        return queueMode != QueueMode.SET;
+    }
 }